@@ -0,0 +1,62 @@
+package com.example.enigmaVisual.api;
+
+import com.example.enigmaVisual.dao.EnigmaDao;
+import com.example.enigmaVisual.model.MachineSpec;
+import com.example.enigmaVisual.service.EnigmaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Calls into the REST controller, wired to a real service and DAO as
+ *  Spring would wire them, without the HTTP layer.
+ *  @author Andy Jiang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ControllerBenchmark {
+
+    /** Rotors asked for, reflector first. */
+    private static final String[] ROTORS = {"B", "Beta", "III", "IV", "I"};
+
+    /** Service behind the controller. */
+    private EnigmaService _service;
+    /** Controller called. */
+    private EnigmaController _controller;
+    /** Request sent. */
+    private EncryptRequest _request;
+
+    @Setup
+    public void setUp() {
+        _service = new EnigmaService(new EnigmaDao());
+        _controller = new EnigmaController(_service);
+        _request = new EncryptRequest();
+        _request.setRotors(ROTORS);
+        _request.setPositions("AXLE");
+        _request.setPlugboard("(HQ) (EX) (IP) (TR) (BY)");
+        _request.setMessage("FROM HIS SHOULDER HIAWATHA");
+        _request.setGroupSize(5);
+    }
+
+    @Benchmark
+    public EncryptResponse encrypt() {
+        return _controller.encrypt(_request);
+    }
+
+    @Benchmark
+    public MachineSpec serviceSpec() {
+        return _service.spec(ROTORS, "AAAA", "(HQ) (EX) (IP) (TR) (BY)");
+    }
+}
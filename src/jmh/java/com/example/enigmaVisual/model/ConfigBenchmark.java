@@ -0,0 +1,62 @@
+package com.example.enigmaVisual.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Reading the standard configuration file, and configuring a machine
+ *  for a message with and without the spec cache.
+ *  @author Andy Jiang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigBenchmark {
+
+    /** Configuration file read. */
+    private Path _config;
+    /** Machine reconfigured. */
+    private Machine _machine;
+    /** Cache of specs for the same rotors. */
+    private SpecCache _cache;
+
+    @Setup
+    public void setUp() {
+        _config = Fixtures.configFile();
+        _machine = Fixtures.machine();
+        _cache = new SpecCache(_machine.alphabet(), _machine.allRotors(),
+                               16, 1 << 20);
+    }
+
+    @Benchmark
+    public Machine readConfig() {
+        return new Main(new String[] {_config.toString()}).readConfig();
+    }
+
+    @Benchmark
+    public MachineSpec setUpAndCompile() {
+        _machine.insertRotors(Fixtures.ROTORS);
+        _machine.setRotors("AXLE");
+        _machine.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                              _machine.alphabet()));
+        return _machine.spec();
+    }
+
+    @Benchmark
+    public MachineSpec cachedSpec() {
+        return _cache.get(Fixtures.ROTORS, null, "(HQ) (EX) (IP) (TR) (BY)");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.enigmaVisual.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/** Configurations and messages shared by the benchmarks.
+ *  @author Andy Jiang
+ */
+final class Fixtures {
+
+    /** The standard configuration file, with the M4 rotors. */
+    static final String CONFIG = String.join("\n",
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ",
+        "5 3",
+        " I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)",
+        " II ME     (FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)",
+        " III MV    (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)",
+        " IV MJ     (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)",
+        " V MZ      (AVOLDRWFIUQ)(BZKSMNHYC) (EGTJPX)",
+        " VI MZM    (AJQDVLEOZWIYTS) (CGMNHFUX) (BPRK)",
+        " VII MZM   (ANOUPFRIMBZTLWKSVEGCJYDHXQ)",
+        " VIII MZM  (AFLSETWUNDHOZVICQ) (BKJ) (GXY) (MPR)",
+        " Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)",
+        " Gamma N   (AFNIRLBSQWVXGUZDKMTPCOYJHE)",
+        " B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)",
+        "           (RX) (SZ) (TV)",
+        " C R       (AR) (BD) (CO) (EJ) (FN) (GT) (HK) (IV) (LM) (PW)",
+        "           (QZ) (SX) (UY)",
+        "");
+
+    /** Rotor order used by the benchmarks. */
+    static final String[] ROTORS = {"B", "Beta", "III", "IV", "I"};
+
+    /** Not instantiable. */
+    private Fixtures() {
+    }
+
+    /** Return CONFIG written to a new temporary file. */
+    static Path configFile() {
+        try {
+            Path file = Files.createTempFile("enigma", ".conf");
+            file.toFile().deleteOnExit();
+            Files.write(file, CONFIG.getBytes(StandardCharsets.UTF_8));
+            return file;
+        } catch (IOException excp) {
+            throw new UncheckedIOException(excp);
+        }
+    }
+
+    /** Return a machine read from CONFIG, set up with ROTORS at AXLE and
+     *  a five-pair plugboard. */
+    static Machine machine() {
+        Machine m = new Main(new String[] {configFile().toString()})
+            .readConfig();
+        m.insertRotors(ROTORS);
+        m.setRotors("AXLE");
+        m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                       m.alphabet()));
+        return m;
+    }
+
+    /** Return LEN random upper-case letters. */
+    static String letters(int len) {
+        Random random = new Random(len);
+        char[] result = new char[len];
+        for (int i = 0; i < len; i++) {
+            result[i] = (char) ('A' + random.nextInt(26));
+        }
+        return new String(result);
+    }
+}
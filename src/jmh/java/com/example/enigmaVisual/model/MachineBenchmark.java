@@ -0,0 +1,93 @@
+package com.example.enigmaVisual.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Whole-message conversion through each engine, at several message
+ *  sizes.  Every engine starts from the same settings and converts the
+ *  same letters, so the scores compare directly.
+ *  @author Andy Jiang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MachineBenchmark {
+
+    /** Number of letters per message. */
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    /** Machine converting through its rotor objects. */
+    private Machine _machine;
+    /** Spec for the compiled engines. */
+    private MachineSpec _spec;
+    /** State the compiled engines start from. */
+    private MachineState _start;
+    /** Table for the table-driven engine. */
+    private StateTable _table;
+    /** The message. */
+    private String _message;
+    /** The message as characters. */
+    private char[] _chars;
+    /** The message as alphabet indices. */
+    private int[] _indices;
+    /** Output buffer. */
+    private char[] _out;
+
+    @Setup
+    public void setUp() {
+        _machine = Fixtures.machine();
+        _spec = _machine.spec();
+        _start = _spec.newState("AXLE");
+        _table = StateTable.build(_spec, _start, 1 << 24);
+        _message = Fixtures.letters(size);
+        _chars = _message.toCharArray();
+        _indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            _indices[i] = _chars[i] - 'A';
+        }
+        _out = new char[size];
+    }
+
+    @Benchmark
+    public int machineConvertInt() {
+        _machine.setRotors("AXLE");
+        int sum = 0;
+        for (int c : _indices) {
+            sum += _machine.convert(c);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public String machineConvertString() {
+        _machine.setRotors("AXLE");
+        return _machine.convert(_message);
+    }
+
+    @Benchmark
+    public int specConvertChars() {
+        return _spec.convert(_start.copy(), _chars, 0, size, _out, 0,
+                             CharPolicy.REJECT);
+    }
+
+    @Benchmark
+    public int stateTableConvertChars() {
+        return _table.convert(_start.copy(), _chars, 0, size, _out, 0,
+                              CharPolicy.REJECT);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.enigmaVisual.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Single lookups in Alphabet, Permutation and Rotor.  Each call walks
+ *  through all 26 letters so the cost of one lookup is the score / 26.
+ *  @author Andy Jiang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitivesBenchmark {
+
+    /** Alphabet looked up. */
+    private Alphabet _alphabet;
+    /** Permutation applied. */
+    private Permutation _permutation;
+    /** Rotor passed through. */
+    private Rotor _rotor;
+
+    @Setup
+    public void setUp() {
+        Machine m = Fixtures.machine();
+        _alphabet = m.alphabet();
+        _rotor = m.usedRotors().get(m.numRotors() - 1);
+        _permutation = _rotor.permutation();
+    }
+
+    @Benchmark
+    public int alphabetToInt() {
+        int sum = 0;
+        for (char c = 'A'; c <= 'Z'; c++) {
+            sum += _alphabet.toInt(c);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int permutationPermuteInt() {
+        int p = 0;
+        for (int i = 0; i < 26; i++) {
+            p = _permutation.permute(p + i);
+        }
+        return p;
+    }
+
+    @Benchmark
+    public char permutationPermuteChar() {
+        char c = 'A';
+        for (int i = 0; i < 26; i++) {
+            c = _permutation.permute(c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public int rotorConvertForward() {
+        int p = 0;
+        for (int i = 0; i < 26; i++) {
+            p = _rotor.convertForward(p + i);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.enigmaVisual.api;
+
+import com.example.enigmaVisual.model.CharPolicy;
+import com.example.enigmaVisual.model.MachineSpec;
+import com.example.enigmaVisual.model.MachineState;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.util.function.Function;
+
+/** Converts a stream of buffers of single-byte text, one buffer at a
+ *  time, on one machine whose state carries over from buffer to buffer,
+ *  so that the output is what converting the whole stream at once would
+ *  give.  Each buffer is copied through a fixed scratch array, converted
+ *  there in place, and written to a new buffer from the same factory;
+ *  the input buffer is released.  Memory used is thus the scratch array
+ *  plus the buffers in flight, however long the stream.  Not for use by
+ *  more than one stream at once.
+ *  @author Andy Jiang
+ */
+class DataBufferConverter implements Function<DataBuffer, DataBuffer> {
+
+    /** A converter using SPEC, starting in STATE, which it updates, and
+     *  treating bytes outside the alphabet according to POLICY. */
+    DataBufferConverter(MachineSpec spec, MachineState state,
+                        CharPolicy policy) {
+        _spec = spec;
+        _state = state;
+        _policy = policy;
+    }
+
+    /** Return the conversion of IN, releasing IN, and releasing the
+     *  output buffer too if conversion fails. */
+    @Override
+    public DataBuffer apply(DataBuffer in) {
+        DataBuffer out = null;
+        try {
+            out = in.factory().allocateBuffer(in.readableByteCount());
+            while (in.readableByteCount() > 0) {
+                int n = Math.min(_scratch.length, in.readableByteCount());
+                in.read(_scratch, 0, n);
+                int len = _spec.convert(_state, _scratch, 0, n, _scratch, 0,
+                                        _policy);
+                out.write(_scratch, 0, len);
+            }
+            DataBuffer result = out;
+            out = null;
+            return result;
+        } finally {
+            if (out != null) {
+                DataBufferUtils.release(out);
+            }
+            DataBufferUtils.release(in);
+        }
+    }
+
+    /** Bytes converted at a time. */
+    private static final int SCRATCH_SIZE = 8192;
+
+    /** Machine converting the stream. */
+    private final MachineSpec _spec;
+    /** Its settings, carried from buffer to buffer. */
+    private final MachineState _state;
+    /** What to do with bytes outside the alphabet. */
+    private final CharPolicy _policy;
+    /** Bytes being converted. */
+    private final byte[] _scratch = new byte[SCRATCH_SIZE];
+}
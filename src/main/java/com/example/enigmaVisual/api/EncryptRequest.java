@@ -0,0 +1,68 @@
+package com.example.enigmaVisual.api;
+
+/** Body of a POST /encrypt request: a machine configuration and a message
+ *  to run through it.
+ *  @author Andy Jiang
+ */
+public class EncryptRequest {
+    /** Rotor names, reflector first. */
+    private String[] rotors;
+    /** Starting rotor settings, one letter per rotor after the reflector. */
+    private String positions;
+    /** Ring settings, in the same form, or null for none. */
+    private String rings;
+    /** Plugboard cycles, such as "(AB) (CD)", or null for none. */
+    private String plugboard;
+    /** Text to convert. */
+    private String message;
+    /** Letters per output group, or 0 to leave the output ungrouped. */
+    private int groupSize;
+
+    public String[] getRotors() {
+        return rotors;
+    }
+
+    public void setRotors(String[] rotors) {
+        this.rotors = rotors;
+    }
+
+    public String getPositions() {
+        return positions;
+    }
+
+    public void setPositions(String positions) {
+        this.positions = positions;
+    }
+
+    public String getRings() {
+        return rings;
+    }
+
+    public void setRings(String rings) {
+        this.rings = rings;
+    }
+
+    public String getPlugboard() {
+        return plugboard;
+    }
+
+    public void setPlugboard(String plugboard) {
+        this.plugboard = plugboard;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    public void setGroupSize(int groupSize) {
+        this.groupSize = groupSize;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.enigmaVisual.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/** Body of the reply to a POST /encrypt request, and one item of the
+ *  reply to a POST /encrypt/batch request, which may instead carry an
+ *  error.  Fields that are null are left out.
+ *  @author Andy Jiang
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EncryptResponse {
+    /** The converted message. */
+    private final String ciphertext;
+    /** Rotor settings after converting it. */
+    private final String positions;
+    /** Why the message could not be converted, or null. */
+    private final String error;
+
+    /** A reply carrying CIPHERTEXT, left by a machine whose rotors ended
+     *  at POSITIONS. */
+    public EncryptResponse(String ciphertext, String positions) {
+        this(ciphertext, positions, null);
+    }
+
+    private EncryptResponse(String ciphertext, String positions,
+                            String error) {
+        this.ciphertext = ciphertext;
+        this.positions = positions;
+        this.error = error;
+    }
+
+    /** Return a reply saying that a message could not be converted
+     *  because of ERROR. */
+    public static EncryptResponse failure(String error) {
+        return new EncryptResponse(null, null, error);
+    }
+
+    public String getCiphertext() {
+        return ciphertext;
+    }
+
+    public String getPositions() {
+        return positions;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -1,37 +1,244 @@
 package com.example.enigmaVisual.api;
 
+import com.example.enigmaVisual.model.CharPolicy;
+import com.example.enigmaVisual.model.EnigmaException;
+import com.example.enigmaVisual.model.GroupWriter;
+import com.example.enigmaVisual.model.MachineSpec;
+import com.example.enigmaVisual.model.MachineState;
+import com.example.enigmaVisual.model.SpecCache;
 import com.example.enigmaVisual.service.EnigmaService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.annotation.NonNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 public class EnigmaController {
+    /** Most requests taken in one batch. A batch this long of requests
+     *  of typical size, about 150 bytes each, is well within the 16MB
+     *  spring.codec.max-in-memory-size, so a longer one is decoded and
+     *  refused with a 400; a batch longer than the codec limit gets a
+     *  413 instead. */
+    static final int MAX_BATCH = 10000;
+    /** Error for a request missing a required field. */
+    private static final String INCOMPLETE =
+        "rotors, positions and message are required";
+
     private final EnigmaService _enigmaService;
     @Autowired
     public EnigmaController(EnigmaService enigmaService) {
         this._enigmaService = enigmaService;
     }
 
-    /**Process a post request to process a msg through the machine/
-     * @param msg Message sent to machine from REST
+    /**Encrypt or decrypt a message on a machine configured as asked,
+     * starting from the given rotor positions. Nothing is kept between
+     * requests: the compiled machine comes from the service's cache and
+     * is shared read-only, and each request steps a state of its own.
+     * @param request Machine configuration and message
+     * @return The converted message and the final rotor positions
      */
-    @PostMapping
-    public void process(@RequestBody @NonNull String msg) {
-        //FIXME
+    @PostMapping("/encrypt")
+    public EncryptResponse encrypt(
+        @RequestBody @NonNull EncryptRequest request) {
+        if (!complete(request)) {
+            throw new IllegalArgumentException(INCOMPLETE);
+        }
+        return convert(spec(request), request);
     }
 
-    /**Retrieves the message processed by the machine.
+    /**Encrypt or decrypt many messages, each on a machine configured as
+     * for /encrypt, in one call. Requests with the same configuration are
+     * grouped, so that each configuration is looked up and compiled once,
+     * and the groups are converted in parallel on the parallel scheduler,
+     * leaving the thread that received the request free. A request that
+     * cannot be converted gets an error in its place and does not stop
+     * the others.
+     * @param requests Machine configurations and messages
+     * @return One reply per request, in the same order, once all are done
      */
-    @GetMapping
-    public String getMsg() {
-        return "";
+    @PostMapping("/encrypt/batch")
+    public Mono<List<EncryptResponse>> encryptBatch(
+        @RequestBody @NonNull List<EncryptRequest> requests) {
+        if (requests.size() > MAX_BATCH) {
+            throw new IllegalArgumentException(
+                "at most " + MAX_BATCH + " requests per batch");
+        }
+        EncryptResponse[] results = new EncryptResponse[requests.size()];
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            EncryptRequest request = requests.get(i);
+            if (!complete(request)) {
+                results[i] = EncryptResponse.failure(INCOMPLETE);
+            } else {
+                groups.computeIfAbsent(configuration(request),
+                    k -> new ArrayList<>()).add(i);
+            }
+        }
+        return Flux.fromIterable(groups.values())
+            .parallel().runOn(Schedulers.parallel())
+            .doOnNext(group -> convertGroup(requests, group, results))
+            .sequential()
+            .then(Mono.fromSupplier(() -> Arrays.asList(results)));
     }
 
+    /**Encrypt or decrypt a request body of any size as it streams in,
+     * returning the result as it is produced. The body is single-byte
+     * text, sent as application/octet-stream or text/plain (any other
+     * type gets a 415); each buffer that arrives is run through a machine
+     * state kept for this request and sent on, and the next is not asked
+     * for until the client reads what was sent, so memory use does not
+     * grow with the size of the body.
+     * @param rotors Rotor names, reflector first, separated by commas
+     * @param positions Starting rotor settings
+     * @param rings Ring settings, if any
+     * @param plugboard Plugboard cycles, if any
+     * @param policy What to do with bytes outside the alphabet: PASS
+     *               copies them (the default), SKIP drops them and REJECT
+     *               drops spaces and fails on anything else
+     * @param body Text to convert
+     * @return The converted text
+     */
+    @PostMapping(value = "/encrypt/stream",
+                 consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                             MediaType.TEXT_PLAIN_VALUE},
+                 produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Flux<DataBuffer> encryptStream(
+        @RequestParam String[] rotors, @RequestParam String positions,
+        @RequestParam(required = false) String rings,
+        @RequestParam(required = false) String plugboard,
+        @RequestParam(defaultValue = "PASS") CharPolicy policy,
+        @RequestBody Flux<DataBuffer> body) {
+        MachineSpec spec = _enigmaService.spec(rotors, rings, plugboard);
+        MachineState start = spec.newState(positions);
+        return Flux.defer(() -> body.map(new DataBufferConverter(spec,
+            start.copy(), policy)));
+    }
 
+    /**Report a bad configuration or message.
+     * @param excp What was wrong
+     * @return A 400 response carrying the error message
+     */
+    @ExceptionHandler({EnigmaException.class, IllegalArgumentException.class})
+    public ResponseEntity<Map<String, String>> badRequest(
+        RuntimeException excp) {
+        return ResponseEntity.badRequest()
+            .body(Collections.singletonMap("error", excp.getMessage()));
+    }
 
+    /**Report a request body too large to buffer, which is any JSON body
+     * over spring.codec.max-in-memory-size.
+     * @param excp What was too large
+     * @return A 413 response carrying the error message
+     */
+    @ExceptionHandler(DataBufferLimitException.class)
+    public ResponseEntity<Map<String, String>> tooLarge(
+        DataBufferLimitException excp) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+            .body(Collections.singletonMap("error", excp.getMessage()));
+    }
+
+    /**Convert the requests of a batch that share a configuration.
+     * @param requests All requests of the batch
+     * @param group Indices of the requests to convert
+     * @param results Where to put the reply to each request
+     */
+    private void convertGroup(List<EncryptRequest> requests,
+                              List<Integer> group, EncryptResponse[] results) {
+        MachineSpec spec;
+        try {
+            spec = spec(requests.get(group.get(0)));
+        } catch (EnigmaException | IllegalArgumentException excp) {
+            EncryptResponse failure =
+                EncryptResponse.failure(excp.getMessage());
+            group.forEach(i -> results[i] = failure);
+            return;
+        }
+        for (int i : group) {
+            try {
+                results[i] = convert(spec, requests.get(i));
+            } catch (EnigmaException | IllegalArgumentException excp) {
+                results[i] = EncryptResponse.failure(excp.getMessage());
+            }
+        }
+    }
 
+    /**Return the compiled machine a request asks for.
+     * @param request Request to serve
+     * @return The spec of the machine configured as asked
+     */
+    private MachineSpec spec(EncryptRequest request) {
+        return _enigmaService.spec(request.getRotors(), request.getRings(),
+            request.getPlugboard());
+    }
+
+    /**Convert a request's message on a machine.
+     * @param spec Machine configured as the request asks
+     * @param request Request to serve
+     * @return The converted message and the final rotor positions
+     */
+    static EncryptResponse convert(MachineSpec spec,
+                                   EncryptRequest request) {
+        MachineState state = spec.newState(request.getPositions());
+        String text = spec.convert(state, request.getMessage());
+        if (request.getGroupSize() > 0) {
+            text = group(text, request.getGroupSize());
+        }
+        return new EncryptResponse(text, spec.setting(state));
+    }
+
+    /**Return true iff a request has everything it needs.
+     * @param request Request to check, possibly null
+     * @return True iff REQUEST gives rotors, positions and a message
+     */
+    static boolean complete(EncryptRequest request) {
+        return request != null && request.getRotors() != null
+            && request.getPositions() != null
+            && request.getMessage() != null;
+    }
+
+    /**Return a key that is the same for requests with the same machine
+     * configuration, and only for them.
+     * @param request Request to key
+     * @return REQUEST's rotors, rings and plugboard as one string
+     */
+    static String configuration(EncryptRequest request) {
+        return SpecCache.configuration(request.getRotors(),
+            request.getRings(), request.getPlugboard());
+    }
+
+    /**Lay out text in groups.
+     * @param text Text to lay out
+     * @param size Letters per group
+     * @return TEXT in groups of SIZE separated by spaces
+     */
+    static String group(String text, int size) {
+        StringBuilder out =
+            new StringBuilder(text.length() * (size + 1) / size);
+        try {
+            new GroupWriter(out, size, 0, "\n").write(text);
+        } catch (IOException excp) {
+            throw new UncheckedIOException(excp);
+        }
+        return out.toString();
+    }
 }
@@ -0,0 +1,229 @@
+package com.example.enigmaVisual.api;
+
+import com.example.enigmaVisual.model.EnigmaException;
+import com.example.enigmaVisual.model.MachineSpec;
+import com.example.enigmaVisual.model.MachineState;
+import com.example.enigmaVisual.service.EnigmaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**WebSocket endpoint for typing on a machine one key at a time, as the
+ * visualizer does. The machine is configured once, by the query of the
+ * URL that opens the connection (rotors, positions, and optionally rings
+ * and plugboard, as for /encrypt/stream), and is kept as a session of the
+ * service, with the sessions' log if there is one, for as long as the
+ * connection lasts. Each text message from the client
+ * is one or more key presses; each key that is not a space gets one reply
+ * of the form
+ * <pre>{"out":"Q","pos":"AXLF","path":"HMUD...Q"}</pre>
+ * giving the output letter, the rotor settings after the key press and
+ * the contact the signal passes at each stage: through the plugboard,
+ * each rotor right to left, the reflector, each rotor left to right and
+ * the plugboard again. A key outside the alphabet gets
+ * {"error":"..."} and leaves the settings alone. A bad configuration
+ * closes the connection with status 1007 and the error as the reason, and
+ * a connection idle for longer than a session lives is closed with status
+ * 1001 at its next key.
+ * @author Andy Jiang
+ */
+@Component
+public class KeystrokeHandler implements WebSocketHandler {
+    /** Most characters in the reason of a close frame, which is limited
+     *  to 123 bytes of UTF-8, or 41 characters of three bytes. */
+    private static final int MAX_REASON = 40;
+
+    private final EnigmaService _enigmaService;
+
+    @Autowired
+    public KeystrokeHandler(EnigmaService enigmaService) {
+        this._enigmaService = enigmaService;
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        Keyboard keyboard;
+        try {
+            keyboard = keyboard(UriComponentsBuilder
+                .fromUri(session.getHandshakeInfo().getUri())
+                .build().getQueryParams());
+        } catch (RuntimeException excp) {
+            return session.close(CloseStatus.BAD_DATA.withReason(
+                reason(excp.getMessage())));
+        }
+        return session.send(session.receive()
+            .map(WebSocketMessage::getPayloadAsText)
+            .concatMapIterable(keyboard::press)
+            .map(session::textMessage))
+            .onErrorResume(EnigmaException.class, excp -> session.close(
+                CloseStatus.GOING_AWAY.withReason(reason(excp.getMessage()))))
+            .doFinally(signal -> keyboard.close());
+    }
+
+    /**Return a keyboard for the machine described by QUERY, on a new
+     * session that lasts until the keyboard is closed.
+     * @param query Query parameters, still URL-encoded
+     * @return A keyboard at the given rotor positions
+     */
+    Keyboard keyboard(MultiValueMap<String, String> query) {
+        String rotors = param(query, "rotors");
+        String positions = param(query, "positions");
+        if (rotors == null || positions == null) {
+            throw new IllegalArgumentException(
+                "rotors and positions are required");
+        }
+        String[] names = rotors.split(",");
+        String rings = param(query, "rings");
+        String plugboard = param(query, "plugboard");
+        MachineSpec spec = _enigmaService.spec(names, rings, plugboard);
+        String id = _enigmaService.openSession(names, rings, plugboard,
+                                               positions);
+        return new Keyboard(_enigmaService, id, spec.pathLength());
+    }
+
+    /**Return the first value of query parameter NAME, decoded.
+     * @param query Query parameters, still URL-encoded
+     * @param name Name of the parameter
+     * @return The parameter's value, or null if there is none
+     */
+    private static String param(MultiValueMap<String, String> query,
+                                String name) {
+        String value = query.getFirst(name);
+        return value == null ? null
+            : UriUtils.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /**Return MSG cut short enough to be the reason of a close frame.
+     * @param msg Error message
+     * @return At most MAX_REASON characters of MSG
+     */
+    static String reason(String msg) {
+        return msg.length() <= MAX_REASON ? msg
+            : msg.substring(0, MAX_REASON);
+    }
+
+    /**Return an error reply.
+     * @param msg Error message
+     * @return MSG as a JSON object
+     */
+    static String error(String msg) {
+        StringBuilder out = new StringBuilder(msg.length() + 16);
+        out.append("{\"error\":");
+        quote(out, msg);
+        return out.append('}').toString();
+    }
+
+    /**Append TEXT to OUT as a JSON string.
+     * @param out Where to append
+     * @param text Text to quote
+     */
+    static void quote(StringBuilder out, CharSequence text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            escape(out, text.charAt(i));
+        }
+        out.append('"');
+    }
+
+    /**Append code point C to OUT as it goes inside a JSON string.
+     * @param out Where to append
+     * @param c Code point to escape
+     */
+    static void escape(StringBuilder out, int c) {
+        if (c == '"' || c == '\\') {
+            out.append('\\').append((char) c);
+        } else if (c < ' ') {
+            out.append(String.format("\\u%04x", c));
+        } else {
+            out.appendCodePoint(c);
+        }
+    }
+
+    /**The session behind one connection. Key presses on one connection
+     * arrive one at a time, so it is never used by two threads at once.
+     */
+    static final class Keyboard {
+        /** A keyboard on session ID of SERVICE, whose signals pass
+         *  PATHLENGTH contacts. */
+        Keyboard(EnigmaService service, String id, int pathLength) {
+            _service = service;
+            _id = id;
+            _path = new int[pathLength];
+        }
+
+        /**Press the keys in KEYS, in order.
+         * @param keys Keys pressed; spaces are ignored
+         * @return One reply for each key that is not a space
+         */
+        List<String> press(String keys) {
+            List<String> replies = new ArrayList<>(keys.length());
+            keys.codePoints().filter(c -> c != ' ')
+                .forEach(c -> replies.add(press(c)));
+            return replies;
+        }
+
+        /**Press the key with code point KEY.
+         * @param key Key pressed
+         * @return The reply to send
+         */
+        String press(int key) {
+            return _service.useSession(_id,
+                (spec, state) -> press(spec, state, key));
+        }
+
+        /**Press the key with code point KEY on the machine SPEC, whose
+         * rotors are at STATE.
+         * @param spec Machine of my session
+         * @param state Its rotor settings, which the key press advances
+         * @param key Key pressed
+         * @return The reply to send
+         */
+        private String press(MachineSpec spec, MachineState state, int key) {
+            int out = spec.trace(state, key, _path);
+            if (out < 0) {
+                return error(new StringBuilder("Character is not in ")
+                    .append("alphabet: ").appendCodePoint(key).toString());
+            }
+            _reply.setLength(0);
+            _reply.append("{\"out\":\"");
+            escape(_reply, out);
+            _reply.append("\",\"pos\":");
+            quote(_reply, spec.setting(state));
+            _reply.append(",\"path\":\"");
+            for (int c : _path) {
+                escape(_reply, c);
+            }
+            return _reply.append("\"}").toString();
+        }
+
+        /** Return the ID of my session. */
+        String id() {
+            return _id;
+        }
+
+        /** End my session. */
+        void close() {
+            _service.closeSession(_id);
+        }
+
+        /** Service holding my session. */
+        private final EnigmaService _service;
+        /** ID of my session. */
+        private final String _id;
+        /** Path of the last signal, reused from key to key. */
+        private final int[] _path;
+        /** Builds replies, reused from key to key. */
+        private final StringBuilder _reply = new StringBuilder(64);
+    }
+}
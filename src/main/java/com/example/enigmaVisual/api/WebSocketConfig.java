@@ -0,0 +1,37 @@
+package com.example.enigmaVisual.api;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
+
+import java.util.Collections;
+
+/**Routes WebSocket connections to their handlers.
+ * @author Andy Jiang
+ */
+@Configuration
+public class WebSocketConfig {
+
+    /**Map /keys to the keystroke handler, ahead of the controllers.
+     * @param keystrokes Handler for the keystroke channel
+     * @return The mapping
+     */
+    @Bean
+    public HandlerMapping webSocketMapping(KeystrokeHandler keystrokes) {
+        SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping();
+        mapping.setUrlMap(Collections.singletonMap("/keys", keystrokes));
+        mapping.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return mapping;
+    }
+
+    /**Let WebSocket handlers serve requests.
+     * @return The adapter
+     */
+    @Bean
+    public WebSocketHandlerAdapter webSocketHandlerAdapter() {
+        return new WebSocketHandlerAdapter();
+    }
+}
@@ -1,23 +1,86 @@
 package com.example.enigmaVisual.dao;
 
 import com.example.enigmaVisual.model.Alphabet;
-import com.example.enigmaVisual.model.Machine;
 import com.example.enigmaVisual.model.Rotor;
+import com.example.enigmaVisual.model.RotorCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
 
 @Repository("enigmaDao")
 public class EnigmaDao {
-    /** List of all available rotors to use.*/
-    private static ArrayList<Rotor> ALL_ROTORS = new ArrayList<>();
-    /** Alphabet consists of all uppercase letters.*/
-    private static Alphabet ALPHABET = new Alphabet();
+    /** Rotors of the M4 naval Enigma, and the others of its time.*/
+    private static final RotorCatalog CATALOG = RotorCatalog.standard();
     /** Number of rotors a machine is allowed to have.*/
-    private static int NUM_ROTORS = 3;
-    /** Number of pawls a machine is allowed to have.*/
-    private static int PAWLS = 3;
-    /** Default machine.*/
-    private static Machine MACHINE = new Machine(ALPHABET, NUM_ROTORS, PAWLS, ALL_ROTORS);
+    private static int NUM_ROTORS = 5;
+    /** Longest a session may go unused before it is dropped.*/
+    private static final Duration SESSION_TTL = Duration.ofMinutes(30);
+    /** Most sessions kept at once.*/
+    private static final int MAX_SESSIONS = 100000;
+
+    /** Size past which the session log may be compacted.*/
+    private static final long COMPACT_BYTES = 64L << 20;
+
+    /** Files sessions are kept in, or null to keep them only in memory.*/
+    private final SessionLog log;
+    /** Machine of each session, by session ID.*/
+    private final SessionStore sessions;
+
+    /** A DAO keeping sessions only in memory. */
+    public EnigmaDao() {
+        this("");
+    }
+
+    /** A DAO keeping sessions in SESSIONDIR, or only in memory if
+     *  SESSIONDIR is empty. */
+    @Autowired
+    public EnigmaDao(@Value("${enigma.session-dir:}") String sessionDir) {
+        log = sessionDir.isEmpty() ? null
+            : new SessionLog(Paths.get(sessionDir), COMPACT_BYTES);
+        sessions = new SessionStore(SESSION_TTL, MAX_SESSIONS, log);
+    }
+
+    /** Return the alphabet of every available rotor. */
+    public Alphabet alphabet() {
+        return CATALOG.alphabet();
+    }
+
+    /** Return the rotors a machine may use. */
+    public List<Rotor> allRotors() {
+        return CATALOG.rotors();
+    }
+
+    /** Return the rotors a machine may use, by name. */
+    public RotorCatalog catalog() {
+        return CATALOG;
+    }
+
+    /** Return the number of rotor slots in a machine. */
+    public int numRotors() {
+        return NUM_ROTORS;
+    }
+
+    /** Return the machines of the current sessions. */
+    public SessionStore sessions() {
+        return sessions;
+    }
+
+    /** Return the number under which configuration CONFIG is kept with
+     *  the sessions using it, or -1 if sessions are not kept. */
+    public int configuration(String config) {
+        return log == null ? -1 : log.configure(config);
+    }
+
+    /** Write out the sessions and close their files, if any. */
+    @PreDestroy
+    public void close() {
+        if (log != null) {
+            log.close();
+        }
+    }
 }
@@ -0,0 +1,579 @@
+package com.example.enigmaVisual.dao;
+
+import com.example.enigmaVisual.model.EnigmaException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/** Keeps machine configurations and session states in a directory of
+ *  local files, so that sessions survive a restart.  Changes are
+ *  appended to a log as records.  A record saving a session's state
+ *  replaces any earlier one, so the log is compacted now and then by
+ *  writing a checkpoint of the live records to a snapshot file and
+ *  starting the log afresh.  Both files carry the generation of the last
+ *  checkpoint, so recovery reads the snapshot and replays only a log of
+ *  the same generation, which holds just the changes made since.  A
+ *  checkpoint also forgets the configurations no session uses any more,
+ *  unless they were recorded since the checkpoint before, so that a
+ *  configuration recorded for a session about to be saved is kept.
+ *
+ *  Changes are written by one thread in batches.  A change to a session
+ *  waiting to be written replaces the one before it, and a whole batch is
+ *  written with one write and made durable with one force, so saving a
+ *  session on every key press costs a map update.  A crash loses at most
+ *  the changes of the last COMMIT_DELAY_MILLIS or so.
+ *  @author Andy Jiang
+ */
+public final class SessionLog implements AutoCloseable {
+
+    /** A log kept in directory DIR, which is created if need be, holding
+     *  what was there already.  The log is compacted once it grows past
+     *  COMPACTBYTES and is at least four times the size its live records
+     *  would take. */
+    public SessionLog(Path dir, long compactBytes) {
+        _logFile = dir.resolve(LOG_NAME);
+        _snapshotFile = dir.resolve(SNAPSHOT_NAME);
+        _compactBytes = compactBytes;
+        try {
+            Files.createDirectories(dir);
+            readSnapshot();
+            _log = FileChannel.open(_logFile, CREATE, READ, WRITE);
+            long end = replayLog();
+            if (end < 0) {
+                startLog();
+            } else {
+                _log.truncate(end);
+                _log.position(end);
+            }
+        } catch (IOException excp) {
+            throw new EnigmaException("cannot open session log in " + dir
+                                      + ": " + excp.getMessage());
+        }
+        _writer = new Thread(this::writeBatches, "session-log");
+        _writer.setDaemon(true);
+        _writer.start();
+    }
+
+    /** Return the number identifying configuration CONFIG, an arbitrary
+     *  string, recording it if it is new.  A configuration forgotten by a
+     *  checkpoint is numbered afresh when it is recorded again. */
+    public int configure(String config) {
+        synchronized (_lock) {
+            Integer id = _configIds.get(config);
+            if (id == null) {
+                id = _nextConfig++;
+                _configs.put(id, config);
+                _configIds.put(config, id);
+                _pendingConfigs.add(id);
+                _newConfigs.add(id);
+                changed();
+            }
+            return id;
+        }
+    }
+
+    /** Return the configuration numbered ID, as given to configure.
+     *  Throws an EnigmaException if there is none. */
+    public String configuration(int id) {
+        synchronized (_lock) {
+            String config = _configs.get(id);
+            if (config == null) {
+                throw new EnigmaException("no configuration " + id);
+            }
+            return config;
+        }
+    }
+
+    /** Record that session ID now has configuration CONFIG with its
+     *  rotors at PACKED. */
+    public void save(String id, int config, long packed) {
+        synchronized (_lock) {
+            _pending.put(id, new long[] {config, packed});
+            changed();
+        }
+    }
+
+    /** Record that session ID has ended. */
+    public void remove(String id) {
+        synchronized (_lock) {
+            _pending.put(id, null);
+            changed();
+        }
+    }
+
+    /** Return the sessions written so far, including those recovered
+     *  when I was opened, as a map from session ID to {configuration
+     *  number, packed rotor settings}. */
+    public Map<String, long[]> sessions() {
+        synchronized (_lock) {
+            return new HashMap<>(_live);
+        }
+    }
+
+    /** Wait until every change recorded so far is durable. */
+    public void flush() {
+        synchronized (_lock) {
+            long target = _changes;
+            while (_durable < target && _failure == null) {
+                try {
+                    _lock.wait();
+                } catch (InterruptedException excp) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            checkFailure();
+        }
+    }
+
+    /** Write out every change recorded so far and close my files. */
+    @Override
+    public void close() {
+        synchronized (_lock) {
+            _closed = true;
+            _lock.notifyAll();
+        }
+        try {
+            _writer.join();
+            _log.close();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (IOException excp) {
+            throw new EnigmaException("cannot close session log");
+        }
+        synchronized (_lock) {
+            checkFailure();
+        }
+    }
+
+    /** Return the size of the log file, in bytes. */
+    long logSize() throws IOException {
+        return _log.size();
+    }
+
+    /** Return the number of configurations I remember. */
+    int configCount() {
+        synchronized (_lock) {
+            return _configs.size();
+        }
+    }
+
+    /** Note a new change and wake the writer.  Called holding _lock. */
+    private void changed() {
+        checkFailure();
+        _changes += 1;
+        _lock.notifyAll();
+    }
+
+    /** Throw an exception if writing has failed.  Called holding
+     *  _lock. */
+    private void checkFailure() {
+        if (_failure != null) {
+            throw new EnigmaException("session log failed: "
+                                      + _failure.getMessage());
+        }
+    }
+
+    /** Body of the writer thread: write batches of changes until closed,
+     *  or until writing fails. */
+    private void writeBatches() {
+        while (true) {
+            List<Integer> configs;
+            Map<String, long[]> sessions;
+            long changes;
+            synchronized (_lock) {
+                while (_changes == _durable && !_closed) {
+                    try {
+                        _lock.wait();
+                    } catch (InterruptedException excp) {
+                        return;
+                    }
+                }
+                if (_changes == _durable) {
+                    return;
+                }
+                long deadline = System.nanoTime()
+                    + COMMIT_DELAY_MILLIS * 1_000_000;
+                long wait;
+                while (!_closed
+                       && (wait = deadline - System.nanoTime()) > 0) {
+                    try {
+                        _lock.wait(wait / 1_000_000, (int) (wait % 1_000_000));
+                    } catch (InterruptedException excp) {
+                        return;
+                    }
+                }
+                configs = _pendingConfigs;
+                sessions = _pending;
+                changes = _changes;
+                _pendingConfigs = new ArrayList<>();
+                _pending = new LinkedHashMap<>();
+            }
+            try {
+                writeBatch(configs, sessions);
+            } catch (IOException | RuntimeException excp) {
+                synchronized (_lock) {
+                    _failure = excp;
+                    _lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (_lock) {
+                _durable = changes;
+                _lock.notifyAll();
+            }
+        }
+    }
+
+    /** Append records for new configurations CONFIGS and changed sessions
+     *  SESSIONS to the log and force them to disk, then compact the log
+     *  if it has grown enough.  Called only by the writer thread. */
+    private void writeBatch(List<Integer> configs,
+                            Map<String, long[]> sessions)
+        throws IOException {
+        ByteBuffer buf = _buffer;
+        buf.clear();
+        for (int id : configs) {
+            buf = putConfig(buf, id, configuration(id));
+        }
+        for (Map.Entry<String, long[]> e : sessions.entrySet()) {
+            long[] session = e.getValue();
+            buf = putSession(buf, e.getKey(), session);
+            synchronized (_lock) {
+                if (session == null) {
+                    _live.remove(e.getKey());
+                } else {
+                    _live.put(e.getKey(), session);
+                }
+            }
+        }
+        _buffer = buf;
+        buf.flip();
+        while (buf.hasRemaining()) {
+            _log.write(buf);
+        }
+        _log.force(false);
+        long size = _log.size();
+        if (size > _compactBytes && size > 4 * liveSize()) {
+            checkpoint();
+        }
+    }
+
+    /** Return roughly how many bytes of records my live sessions and
+     *  configurations take. */
+    private long liveSize() {
+        synchronized (_lock) {
+            return (long) _live.size() * SESSION_RECORD_BYTES
+                + (long) _configs.size() * CONFIG_RECORD_BYTES;
+        }
+    }
+
+    /** Write every live session, and the configurations they use or
+     *  that were recorded since the last checkpoint, to a new snapshot of
+     *  the next generation, which replaces the old snapshot when it is
+     *  complete, and then start an empty log of that generation.  Other
+     *  configurations are forgotten.  A crash part way leaves either the
+     *  old snapshot and log, or the new snapshot and a log of the old
+     *  generation, which recovery ignores. */
+    private void checkpoint() throws IOException {
+        Path tmp = _snapshotFile.resolveSibling(SNAPSHOT_NAME + ".tmp");
+        Map<Integer, String> configs;
+        Map<String, long[]> live;
+        synchronized (_lock) {
+            live = new HashMap<>(_live);
+            Set<Integer> used = _newConfigs;
+            _newConfigs = new HashSet<>();
+            for (long[] session : live.values()) {
+                used.add((int) session[0]);
+            }
+            for (long[] session : _pending.values()) {
+                if (session != null) {
+                    used.add((int) session[0]);
+                }
+            }
+            _configs.keySet().retainAll(used);
+            _configIds.values().retainAll(used);
+            configs = new HashMap<>(_configs);
+        }
+        long generation = _generation + 1;
+        try (FileChannel out = FileChannel.open(tmp, CREATE, WRITE,
+                                                TRUNCATE_EXISTING)) {
+            ByteBuffer buf = _buffer;
+            buf.clear();
+            buf.putInt(SNAPSHOT_MAGIC).putLong(generation);
+            for (Map.Entry<Integer, String> e : configs.entrySet()) {
+                buf = putConfig(buf, e.getKey(), e.getValue());
+                buf = drain(out, buf);
+            }
+            for (Map.Entry<String, long[]> e : live.entrySet()) {
+                buf = putSession(buf, e.getKey(), e.getValue());
+                buf = drain(out, buf);
+            }
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            out.force(true);
+            _buffer = buf;
+        }
+        Files.move(tmp, _snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        _generation = generation;
+        startLog();
+    }
+
+    /** Empty the log and start it with a header for the current
+     *  generation. */
+    private void startLog() throws IOException {
+        _log.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(LOG_MAGIC).putLong(_generation).flip();
+        _log.write(header, 0);
+        _log.force(true);
+        _log.position(HEADER_BYTES);
+    }
+
+    /** Write out BUF to OUT if it is more than half full, and return it
+     *  ready for more. */
+    private static ByteBuffer drain(FileChannel out, ByteBuffer buf)
+        throws IOException {
+        if (buf.position() > buf.capacity() / 2) {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            buf.clear();
+        }
+        return buf;
+    }
+
+    /** Read the snapshot, if there is one, setting my generation and
+     *  configurations and the live sessions from it. */
+    private void readSnapshot() throws IOException {
+        if (!Files.exists(_snapshotFile)) {
+            return;
+        }
+        try (FileChannel in = FileChannel.open(_snapshotFile, READ)) {
+            MappedByteBuffer map =
+                in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (map.remaining() < HEADER_BYTES
+                || map.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("bad snapshot " + _snapshotFile);
+            }
+            _generation = map.getLong();
+            if (readRecords(map) != map.limit()) {
+                throw new IOException("damaged snapshot " + _snapshotFile);
+            }
+        }
+    }
+
+    /** Replay the log if it belongs to the current generation.  Returns
+     *  the offset just past its last complete record, or -1 if it must be
+     *  started afresh. */
+    private long replayLog() throws IOException {
+        long size = _log.size();
+        if (size < HEADER_BYTES) {
+            return -1;
+        }
+        MappedByteBuffer map = _log.map(FileChannel.MapMode.READ_ONLY, 0,
+                                        size);
+        if (map.getInt() != LOG_MAGIC || map.getLong() != _generation) {
+            return -1;
+        }
+        return readRecords(map);
+    }
+
+    /** Apply the records in BUF from its position on, stopping at the
+     *  first that is incomplete or damaged, as the last record of a log
+     *  may be after a crash.  Returns the position just past the last
+     *  record applied. */
+    private int readRecords(ByteBuffer buf) {
+        CRC32 crc = new CRC32();
+        while (true) {
+            int start = buf.position();
+            try {
+                int len = buf.getInt();
+                if (len < 1 || len > buf.remaining() - Integer.BYTES) {
+                    return start;
+                }
+                ByteBuffer body = buf.slice();
+                body.limit(len);
+                buf.position(buf.position() + len);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != buf.getInt()) {
+                    return start;
+                }
+                applyRecord(body);
+            } catch (BufferUnderflowException | IllegalArgumentException
+                     | IndexOutOfBoundsException excp) {
+                return start;
+            }
+        }
+    }
+
+    /** Apply the record BODY, read during recovery. */
+    private void applyRecord(ByteBuffer body) {
+        byte type = body.get();
+        if (type == CONFIG) {
+            int id = body.getInt();
+            String config = getString(body);
+            _configs.put(id, config);
+            _configIds.put(config, id);
+            _nextConfig = Math.max(_nextConfig, id + 1);
+        } else {
+            String id = getString(body);
+            if (type == SESSION) {
+                _live.put(id, new long[] {body.getInt(), body.getLong()});
+            } else {
+                _live.remove(id);
+            }
+        }
+    }
+
+    /** Return BUF, or a larger copy if it cannot hold NEED more bytes. */
+    private static ByteBuffer reserve(ByteBuffer buf, int need) {
+        if (buf.remaining() >= need) {
+            return buf;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(
+            Math.max(2 * buf.capacity(), buf.position() + need));
+        buf.flip();
+        return bigger.put(buf);
+    }
+
+    /** Append a record of configuration CONFIG, numbered ID, to BUF, or
+     *  a larger copy of BUF, which is returned. */
+    private static ByteBuffer putConfig(ByteBuffer buf, int id,
+                                        String config) {
+        byte[] text = config.getBytes(StandardCharsets.UTF_8);
+        int len = 1 + Integer.BYTES + Integer.BYTES + text.length;
+        buf = reserve(buf, len + 2 * Integer.BYTES);
+        int start = buf.putInt(len).position();
+        buf.put(CONFIG).putInt(id).putInt(text.length).put(text);
+        return putCrc(buf, start);
+    }
+
+    /** Append a record of session ID, which is SESSION as in sessions(),
+     *  or ended if SESSION is null, to BUF, or a larger copy of BUF,
+     *  which is returned. */
+    private static ByteBuffer putSession(ByteBuffer buf, String id,
+                                         long[] session) {
+        byte[] text = id.getBytes(StandardCharsets.UTF_8);
+        int len = 1 + Integer.BYTES + text.length
+            + (session == null ? 0 : Integer.BYTES + Long.BYTES);
+        buf = reserve(buf, len + 2 * Integer.BYTES);
+        int start = buf.putInt(len).position();
+        buf.put(session == null ? REMOVED : SESSION).putInt(text.length)
+            .put(text);
+        if (session != null) {
+            buf.putInt((int) session[0]).putLong(session[1]);
+        }
+        return putCrc(buf, start);
+    }
+
+    /** Append to BUF the checksum of the record body starting at START,
+     *  and return BUF. */
+    private static ByteBuffer putCrc(ByteBuffer buf, int start) {
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buf.duplicate();
+        body.flip().position(start);
+        crc.update(body);
+        return buf.putInt((int) crc.getValue());
+    }
+
+    /** Return a string read from BUF as written by putConfig. */
+    private static String getString(ByteBuffer buf) {
+        byte[] text = new byte[buf.getInt()];
+        buf.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /** Name of the log file. */
+    static final String LOG_NAME = "sessions.log";
+    /** Name of the snapshot file. */
+    static final String SNAPSHOT_NAME = "sessions.snapshot";
+    /** Longest a change waits for others to join its batch. */
+    static final long COMMIT_DELAY_MILLIS = 5;
+    /** First bytes of a log. */
+    private static final int LOG_MAGIC = 0x454e4c47;
+    /** First bytes of a snapshot. */
+    private static final int SNAPSHOT_MAGIC = 0x454e5353;
+    /** Bytes in the header of a log or snapshot. */
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    /** Type of a configuration record. */
+    private static final byte CONFIG = 1;
+    /** Type of a record saving a session. */
+    private static final byte SESSION = 2;
+    /** Type of a record ending a session. */
+    private static final byte REMOVED = 3;
+    /** Typical bytes in a session record. */
+    private static final int SESSION_RECORD_BYTES = 64;
+    /** Typical bytes in a configuration record. */
+    private static final int CONFIG_RECORD_BYTES = 80;
+    /** Bytes first allocated for a batch. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The log file. */
+    private final Path _logFile;
+    /** The snapshot file. */
+    private final Path _snapshotFile;
+    /** Size past which the log may be compacted. */
+    private final long _compactBytes;
+    /** Open log file.  Written only by the writer thread, once open. */
+    private final FileChannel _log;
+    /** Thread writing batches. */
+    private final Thread _writer;
+    /** Guards everything below but _generation and _buffer, which belong
+     *  to the writer thread. */
+    private final Object _lock = new Object();
+    /** Configurations, by number. */
+    private final Map<Integer, String> _configs = new HashMap<>();
+    /** Numbers of the configurations. */
+    private final Map<String, Integer> _configIds = new HashMap<>();
+    /** Number of the next new configuration.  Numbers are not reused
+     *  while I am open, so a number held between configure and save never
+     *  comes to name another configuration. */
+    private int _nextConfig;
+    /** Configurations recorded since the last checkpoint, by number. */
+    private Set<Integer> _newConfigs = new HashSet<>();
+    /** Sessions written so far, as in sessions(). */
+    private final Map<String, long[]> _live = new HashMap<>();
+    /** Configurations not yet written, by number. */
+    private List<Integer> _pendingConfigs = new ArrayList<>();
+    /** Changes to sessions not yet written, with null for an ended
+     *  session. */
+    private Map<String, long[]> _pending = new LinkedHashMap<>();
+    /** Number of changes recorded. */
+    private long _changes;
+    /** Number of changes made durable. */
+    private long _durable;
+    /** True once I have been closed. */
+    private boolean _closed;
+    /** What made writing fail, or null. */
+    private Exception _failure;
+    /** Generation of the last checkpoint. */
+    private long _generation;
+    /** Buffer batches are assembled in. */
+    private ByteBuffer _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+}
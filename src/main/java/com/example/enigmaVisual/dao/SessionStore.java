@@ -0,0 +1,336 @@
+package com.example.enigmaVisual.dao;
+
+import com.example.enigmaVisual.model.EnigmaException;
+import com.example.enigmaVisual.model.MachineSpec;
+import com.example.enigmaVisual.model.MachineState;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/** The machines of many concurrent sessions, by session ID.  A session
+ *  holds only a reference to its compiled MachineSpec, which is shared
+ *  with every other session configured the same way, and its rotor
+ *  settings packed into a long, so a session costs about a hundred bytes
+ *  however many there are.  Sessions live in a ConcurrentHashMap, and
+ *  each session is locked only while it is being used, so sessions never
+ *  wait for one another.  A session not used for the time-to-live is
+ *  dropped, and when there are too many sessions the least recently used
+ *  are dropped to make room.  Sessions started with a configuration
+ *  number are also kept in a SessionLog, if I have one, which is told of
+ *  every change to them.
+ *  @author Andy Jiang
+ */
+public final class SessionStore {
+
+    /** A store of at most MAXSESSIONS sessions, each dropped once it has
+     *  not been used for TTL. */
+    public SessionStore(Duration ttl, int maxSessions) {
+        this(ttl, maxSessions, null);
+    }
+
+    /** A store of at most MAXSESSIONS sessions, each dropped once it has
+     *  not been used for TTL, keeping sessions in LOG, which may be
+     *  null. */
+    public SessionStore(Duration ttl, int maxSessions, SessionLog log) {
+        this(ttl.toNanos(), maxSessions, System::nanoTime, log);
+    }
+
+    /** A store of at most MAXSESSIONS sessions, each dropped once it has
+     *  not been used for TTL nanoseconds as measured by CLOCK, keeping
+     *  sessions in LOG, which may be null. */
+    SessionStore(long ttl, int maxSessions, LongSupplier clock,
+                 SessionLog log) {
+        if (ttl <= 0 || maxSessions <= 0) {
+            throw new EnigmaException("session bounds must be positive");
+        }
+        _ttl = ttl;
+        _maxSessions = maxSessions;
+        _clock = clock;
+        _log = log;
+        _sessions = new ConcurrentHashMap<>();
+        _lastSweep = clock.getAsLong();
+    }
+
+    /** Start session ID, or restart it if it exists, with a machine
+     *  described by SPEC whose rotors are at STATE.  SPEC must be able to
+     *  pack its states.  The session is not logged. */
+    public void put(String id, MachineSpec spec, MachineState state) {
+        put(id, -1, spec, state);
+    }
+
+    /** Start session ID, or restart it if it exists, with a machine
+     *  described by SPEC whose rotors are at STATE, logging it if I have
+     *  a log and CONFIG, the number of SPEC's configuration in that log,
+     *  is not negative. */
+    public void put(String id, int config, MachineSpec spec,
+                    MachineState state) {
+        install(id, config, spec, spec.pack(state), true);
+    }
+
+    /** Start session ID with configuration CONFIG, a machine described
+     *  by SPEC whose rotors are at PACKED, without logging it, as when
+     *  it is recovered from my log. */
+    void restore(String id, int config, MachineSpec spec, long packed) {
+        install(id, config, spec, packed, false);
+    }
+
+    /** Start session ID with configuration CONFIG, a machine described
+     *  by SPEC whose rotors are at PACKED, ending any session it
+     *  replaces, and logging it if LOG and it is logged.  The new session
+     *  is locked until it is logged, so no use of it is logged first,
+     *  and the session it replaces is ended before, so no use of that
+     *  session is logged after. */
+    private void install(String id, int config, MachineSpec spec,
+                         long packed, boolean log) {
+        long now = _clock.getAsLong();
+        Session session = new Session(spec, config, packed, now,
+                                      weight(id));
+        Session old;
+        synchronized (session) {
+            old = _sessions.put(id, session);
+            if (old != null) {
+                end(id, old, !logged(session));
+            }
+            if (log && logged(session)) {
+                _log.save(id, config, packed);
+            }
+        }
+        _bytes.add(session._bytes - (old == null ? 0 : old._bytes));
+        if (_sessions.size() > _maxSessions || now - _lastSweep >= _ttl) {
+            sweep(now);
+        }
+    }
+
+    /** Restart the sessions kept in my log, if I have one, looking up
+     *  the machine for each configuration in SPECS, which is given the
+     *  configuration's text from the log.  Sessions whose machines cannot
+     *  be had are ended.  Returns the number of sessions restarted. */
+    public int recover(Function<String, MachineSpec> specs) {
+        if (_log == null) {
+            return 0;
+        }
+        int restarted = 0;
+        for (Map.Entry<String, long[]> e : _log.sessions().entrySet()) {
+            int config = (int) e.getValue()[0];
+            try {
+                MachineSpec spec = specs.apply(_log.configuration(config));
+                restore(e.getKey(), config, spec, e.getValue()[1]);
+                restarted += 1;
+            } catch (EnigmaException | IllegalArgumentException excp) {
+                _log.remove(e.getKey());
+            }
+        }
+        return restarted;
+    }
+
+    /** Return the result of ACTION applied to the machine of session ID
+     *  and a state holding its current rotor settings, keeping whatever
+     *  ACTION leaves in that state as the session's new settings.  If
+     *  ACTION throws, the session's settings are left as they were.
+     *  Uses of one session are carried out one at a time; uses of
+     *  different sessions run concurrently.  Throws an EnigmaException if
+     *  there is no such session or it has expired. */
+    public <T> T apply(String id,
+                       BiFunction<MachineSpec, MachineState, T> action) {
+        long now = _clock.getAsLong();
+        Session session = _sessions.get(id);
+        if (session != null && now - session._lastUsed >= _ttl) {
+            drop(id, session);
+            session = null;
+        }
+        if (session == null) {
+            throw new EnigmaException("no session " + id);
+        }
+        synchronized (session) {
+            MachineState state = session._spec.unpack(session._packed);
+            T result = action.apply(session._spec, state);
+            long packed = session._spec.pack(state);
+            if (packed != session._packed && logged(session)
+                && !session._dead && _sessions.get(id) == session) {
+                _log.save(id, session._config, packed);
+            }
+            session._packed = packed;
+            session._lastUsed = now;
+            return result;
+        }
+    }
+
+    /** End session ID.  Returns true iff it existed. */
+    public boolean remove(String id) {
+        Session session = _sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        _bytes.add(-session._bytes);
+        end(id, session, true);
+        return true;
+    }
+
+    /** Return the number of sessions held, including any that have
+     *  expired but not yet been dropped. */
+    public int size() {
+        return _sessions.size();
+    }
+
+    /** Return roughly how many bytes my sessions occupy, not counting
+     *  their specs, which are shared. */
+    public long bytes() {
+        return _bytes.sum();
+    }
+
+    /** Return the number of sessions dropped for being idle or to make
+     *  room. */
+    public long evictions() {
+        return _evictions.sum();
+    }
+
+    /** Drop every expired session, and if there are still more than the
+     *  maximum, the least recently used, leaving room for an eighth of
+     *  the maximum more, so that the cost of a sweep is spread over many
+     *  puts.  NOW is the current time.  Only one thread sweeps at a time;
+     *  a thread that finds another sweeping, or finds that a sweep has
+     *  already made it unnecessary, returns at once. */
+    private void sweep(long now) {
+        if (!_sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (_sessions.size() > _maxSessions || now - _lastSweep >= _ttl) {
+                sweepNow(now);
+            }
+        } finally {
+            _sweeping.set(false);
+        }
+    }
+
+    /** Carry out a sweep at time NOW, as for sweep.  Called by at most
+     *  one thread at a time. */
+    private void sweepNow(long now) {
+        _lastSweep = now;
+        for (Map.Entry<String, Session> e : _sessions.entrySet()) {
+            if (now - e.getValue()._lastUsed >= _ttl) {
+                drop(e.getKey(), e.getValue());
+            }
+        }
+        int excess = _sessions.size() - (_maxSessions - _maxSessions / 8);
+        if (_sessions.size() <= _maxSessions || excess <= 0) {
+            return;
+        }
+        long[] ages = new long[_sessions.size()];
+        int n = 0;
+        for (Session session : _sessions.values()) {
+            if (n == ages.length) {
+                break;
+            }
+            ages[n++] = now - session._lastUsed;
+        }
+        Arrays.sort(ages, 0, n);
+        long minAge = ages[Math.max(0, n - excess)];
+        Iterator<Map.Entry<String, Session>> all =
+            _sessions.entrySet().iterator();
+        while (excess > 0 && all.hasNext()) {
+            Map.Entry<String, Session> e = all.next();
+            if (now - e.getValue()._lastUsed >= minAge
+                && drop(e.getKey(), e.getValue())) {
+                excess -= 1;
+            }
+        }
+    }
+
+    /** Drop SESSION, which was stored under ID, unless it has been
+     *  replaced or dropped already.  Returns true iff it was dropped. */
+    private boolean drop(String id, Session session) {
+        if (!_sessions.remove(id, session)) {
+            return false;
+        }
+        _bytes.add(-session._bytes);
+        _evictions.increment();
+        end(id, session, true);
+        return true;
+    }
+
+    /** Mark SESSION, which was stored under ID and has been taken out of
+     *  my map, as ended, once any use of it in progress is done, so that
+     *  no later use of it is logged.  If UNLOG, also tell my log, if
+     *  SESSION is in it, that session ID has ended. */
+    private void end(String id, Session session, boolean unlog) {
+        synchronized (session) {
+            session._dead = true;
+            if (unlog && logged(session)) {
+                _log.remove(id);
+            }
+        }
+    }
+
+    /** Return true iff SESSION is kept in my log. */
+    private boolean logged(Session session) {
+        return _log != null && session._config >= 0;
+    }
+
+    /** Return roughly how many bytes a session stored under ID occupies:
+     *  its map node, its Session and its ID. */
+    static long weight(String id) {
+        return SESSION_BYTES + 2L * id.length();
+    }
+
+    /** Bytes taken by a session apart from the characters of its ID: a
+     *  map node, a Session, and a String with its array's header. */
+    static final long SESSION_BYTES = 32 + 48 + 40;
+
+    /** The machine of one session. */
+    private static final class Session {
+        /** A session using SPEC, whose configuration is numbered CONFIG
+         *  in the log, with rotors at PACKED, last used at LASTUSED and
+         *  weighing BYTES. */
+        Session(MachineSpec spec, int config, long packed, long lastUsed,
+                long bytes) {
+            _spec = spec;
+            _config = config;
+            _packed = packed;
+            _lastUsed = lastUsed;
+            _bytes = bytes;
+        }
+
+        /** Machine used. */
+        private final MachineSpec _spec;
+        /** Number of its configuration in the log, or -1 if I am not
+         *  logged. */
+        private final int _config;
+        /** Its rotor settings, packed.  Guarded by the lock on me. */
+        private long _packed;
+        /** When I was last used. */
+        private volatile long _lastUsed;
+        /** True once I have been ended, after which my uses are not
+         *  logged.  Guarded by the lock on me. */
+        private boolean _dead;
+        /** Roughly how many bytes I occupy. */
+        private final long _bytes;
+    }
+
+    /** Time a session may go unused, in nanoseconds. */
+    private final long _ttl;
+    /** Most sessions kept after a sweep. */
+    private final int _maxSessions;
+    /** Source of the current time, in nanoseconds. */
+    private final LongSupplier _clock;
+    /** Where sessions are kept, or null. */
+    private final SessionLog _log;
+    /** Sessions, by ID. */
+    private final ConcurrentHashMap<String, Session> _sessions;
+    /** Total bytes of my sessions. */
+    private final LongAdder _bytes = new LongAdder();
+    /** Number of sessions dropped. */
+    private final LongAdder _evictions = new LongAdder();
+    /** When expired sessions were last swept out. */
+    private volatile long _lastSweep;
+    /** True while some thread is sweeping. */
+    private final AtomicBoolean _sweeping = new AtomicBoolean();
+}
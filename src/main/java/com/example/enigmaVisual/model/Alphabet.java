@@ -1,9 +1,15 @@
 package com.example.enigmaVisual.model;
 
-import java.util.HashMap;
+import java.util.Arrays;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
 
 /** An alphabet of encodable characters.  Provides a mapping from characters
- *  to and from indices into the alphabet.
+ *  to and from indices into the alphabet.  Symbols are Unicode code points,
+ *  so an alphabet may include characters outside the Basic Multilingual
+ *  Plane.  Lookups in either direction take constant time: indices are
+ *  found through a dense table indexed by code point, or through a small
+ *  open-addressed hash table when the code points are large and sparse.
  *  @author Andy Jiang
  */
 public class Alphabet {
@@ -18,25 +24,7 @@ public class Alphabet {
     /** A new alphabet containing CHARS.  Character number #k has index
      *  K (numbering from 0). No character may be duplicated. */
     public Alphabet(String chars) {
-        char [] charsArr = chars.toCharArray();
-        HashMap<Character, Integer> map = new HashMap<>();
-        for (char  ch : charsArr) {
-            if (map.containsKey(ch)) {
-                int count = map.get(ch);
-                map.put(ch, ++count);
-            } else {
-                map.put(ch, 1);
-            }
-        }
-        for (char ch : map.keySet()) {
-            if (map.get(ch) > 1) {
-                throw new EnigmaException("Duplicate in alphabet");
-            }
-        }
-
-        this._alph = chars;
-        this._size = chars.length();
-
+        this(chars, chars.codePoints().toArray());
     }
 
     /** A default alphabet of all upper-case characters. */
@@ -45,6 +33,64 @@ public class Alphabet {
         this("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
     }
 
+    /** An alphabet whose string form is CHARS and whose symbols are the
+     *  code points SYMBOLS. */
+    private Alphabet(String chars, int[] symbols) {
+        this._alph = chars;
+        this._size = symbols.length;
+        _symbols = symbols;
+        int maxSymbol = 0;
+        for (int cp : symbols) {
+            maxSymbol = Math.max(maxSymbol, cp);
+        }
+        if (maxSymbol < DENSE_LIMIT || maxSymbol / DENSE_RATIO < _size) {
+            _dense = new int[maxSymbol + 1];
+            Arrays.fill(_dense, -1);
+            _keys = _values = null;
+            _shift = 0;
+            for (int i = 0; i < _size; i++) {
+                if (_dense[symbols[i]] >= 0) {
+                    throw new EnigmaException("Duplicate in alphabet");
+                }
+                _dense[symbols[i]] = i;
+            }
+        } else {
+            int bits = 32 - Integer.numberOfLeadingZeros(2 * _size - 1);
+            _dense = null;
+            _keys = new int[1 << bits];
+            _values = new int[1 << bits];
+            _shift = 32 - bits;
+            Arrays.fill(_keys, -1);
+            for (int i = 0; i < _size; i++) {
+                int slot = slot(symbols[i]);
+                if (_keys[slot] >= 0) {
+                    throw new EnigmaException("Duplicate in alphabet");
+                }
+                _keys[slot] = symbols[i];
+                _values[slot] = i;
+            }
+        }
+        _chars = new char[_size];
+        boolean bmp = true;
+        for (int i = 0; i < _size; i++) {
+            bmp &= Character.isBmpCodePoint(symbols[i]);
+            _chars[i] = (char) symbols[i];
+        }
+        _bmp = bmp;
+    }
+
+    /** Return an alphabet of the 256 characters with codes 0 through 255,
+     *  in order, so that each byte value is its own index. */
+    public static Alphabet bytes() {
+        int[] symbols = new int[256];
+        char[] chars = new char[256];
+        for (int i = 0; i < 256; i++) {
+            symbols[i] = i;
+            chars[i] = (char) i;
+        }
+        return new Alphabet(new String(chars), symbols);
+    }
+
     /** Returns the size of the alphabet. */
     int size() {
         return _size;
@@ -56,40 +102,86 @@ public class Alphabet {
     }
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        for (char c : this._alph.toCharArray()) {
-            if (ch == c) {
-                return true;
-            }
-        }
-        return false;
+        return indexOf(ch) >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
-     *  0 <= INDEX < size(). */
+     *  0 <= INDEX < size().  That character must not be a supplementary
+     *  code point. */
     char toChar(int index) {
         if (index < 0 || index >= this._size) {
             throw new EnigmaException("Index out of bounds");
+        } else if (!_bmp && !Character.isBmpCodePoint(_symbols[index])) {
+            throw error("symbol %d is not a single char", index);
         } else {
-            return this._alph.toCharArray()[index];
+            return _chars[index];
         }
     }
 
     /** Returns the index of character CH which must be in
      *  the alphabet. This is the inverse of toChar(). */
     int toInt(char ch) {
-        char[] alphArr = this._alph.toCharArray();
-
-        if (!contains(ch)) {
-            System.out.println(ch);
+        int index = indexOf(ch);
+        if (index < 0) {
             throw new EnigmaException("Character is not in alphabet");
-        } else {
-            for (int i = 0; i < alphArr.length; i++) {
-                if (alphArr[i] == ch) {
-                    return i;
-                }
-            }
         }
-        throw new EnigmaException("Something wrong with toInt");
+        return index;
+    }
+
+    /** Returns the code point of symbol number INDEX, where
+     *  0 <= INDEX < size(). */
+    int toCodePoint(int index) {
+        if (index < 0 || index >= this._size) {
+            throw new EnigmaException("Index out of bounds");
+        }
+        return _symbols[index];
+    }
+
+    /** Returns the index of code point CP in the alphabet, or -1 if it is
+     *  not in the alphabet. */
+    int indexOf(int cp) {
+        if (_dense != null) {
+            return cp >= 0 && cp < _dense.length ? _dense[cp] : -1;
+        }
+        int slot = slot(cp);
+        return _keys[slot] == cp ? _values[slot] : -1;
     }
 
+    /** Returns true iff every symbol of the alphabet is a single char. */
+    boolean isBmp() {
+        return _bmp;
+    }
+
+    /** Returns the hash slot holding code point CP, or the empty slot
+     *  where it would go. */
+    private int slot(int cp) {
+        int mask = _keys.length - 1;
+        int slot = (cp * 0x9E3779B9) >>> _shift;
+        while (_keys[slot] >= 0 && _keys[slot] != cp) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** Code points below this always get a dense lookup table. */
+    private static final int DENSE_LIMIT = 1 << 12;
+    /** Larger code points get a dense table if the largest is less than
+     *  this many times the size of the alphabet. */
+    private static final int DENSE_RATIO = 16;
+
+    /** The code point of each symbol, by index. */
+    private final int[] _symbols;
+    /** The char of each symbol, by index, for single-char symbols. */
+    private final char[] _chars;
+    /** True iff every symbol is a single char. */
+    private final boolean _bmp;
+    /** Index of each code point up to the largest symbol, or -1; null if
+     *  lookups go through the hash table instead. */
+    private final int[] _dense;
+    /** Hash table of symbols, with -1 in empty slots, or null. */
+    private final int[] _keys;
+    /** Index of the symbol in the corresponding slot of _keys. */
+    private final int[] _values;
+    /** Shift that reduces a 32-bit hash to a slot of _keys. */
+    private final int _shift;
 }
@@ -0,0 +1,417 @@
+package com.example.enigmaVisual.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** A simulated Turing-Welchman Bombe.  A menu is built from a crib lined
+ *  up against its ciphertext: each letter is a node, and each position of
+ *  the crib an edge joining the plain and cipher letters there, labelled
+ *  with the scrambler (the machine without its plugboard) at that
+ *  position.  For each rotor order and starting setting, the Bombe
+ *  supposes that the most connected menu letter is plugged to some letter
+ *  and lights every plugboard connection that follows, through the
+ *  scramblers on the menu's edges and through the diagonal board (if a is
+ *  plugged to b then b is plugged to a).  A wrong supposition normally
+ *  lights every wire of the test letter; when it does not, the setting is
+ *  a stop and the unlit wires (or the single lit one) are the plugboard
+ *  partners still possible for the test letter.
+ *
+ *  Each letter's lit wires are kept as bits of a long, so alphabets are
+ *  limited to 64 letters.  Unlike the electromechanical Bombe, which
+ *  ignored turnovers of the middle and left rotors within a menu, the
+ *  scramblers here step exactly as the machine does.  Rotor orders and
+ *  settings are searched concurrently on a ForkJoinPool; the work for
+ *  one setting allocates nothing.
+ *  @author Andy Jiang
+ */
+public final class Bombe {
+
+    /** A Bombe on POOL for machines built from SPECS. */
+    public Bombe(ForkJoinPool pool, SpecCache specs) {
+        if (specs.alphabet().size() > Long.SIZE) {
+            throw error("alphabet too large for a bombe");
+        }
+        _pool = pool;
+        _specs = specs;
+    }
+
+    /** A Bombe on the common pool for machines built from SPECS. */
+    public Bombe(SpecCache specs) {
+        this(ForkJoinPool.commonPool(), specs);
+    }
+
+    /** Return the menu for CRIB placed at OFFSET in CIPHERTEXT, ignoring
+     *  spaces in both, over my alphabet. */
+    public Menu menu(String ciphertext, String crib, int offset) {
+        return new Menu(_specs.alphabet(), ciphertext.replace(" ", ""),
+                        crib.replace(" ", ""), offset);
+    }
+
+    /** Run MENU on each rotor order in ORDERS (rotor names, reflector
+     *  first) with ring setting RINGS (null meaning all at 0) and every
+     *  starting setting of the rotors, stopping after MAXSTOPS stops. */
+    public Result run(Menu menu, List<String[]> orders, String rings,
+                      int maxStops) {
+        List<MachineSpec> specs = new ArrayList<>();
+        for (String[] order : orders) {
+            MachineSpec spec = _specs.get(order, rings, "");
+            if (!specs.isEmpty()
+                && spec.numRotors() != specs.get(0).numRotors()) {
+                throw error("rotor orders differ in length");
+            }
+            specs.add(spec);
+        }
+        long positions = 1;
+        for (int i = 1; !specs.isEmpty() && i < specs.get(0).numRotors();
+             i++) {
+            positions *= menu._size;
+        }
+        Search search =
+            new Search(menu, orders, specs, positions, maxStops);
+        long start = System.nanoTime();
+        if (!specs.isEmpty()) {
+            _pool.invoke(new KeyRangeTask(search::run, 0,
+                                          specs.size() * positions,
+                                          LEAF_POSITIONS));
+        }
+        long nanos = System.nanoTime() - start;
+        List<Stop> stops = new ArrayList<>(search.stops);
+        if (stops.size() > maxStops) {
+            stops = stops.subList(0, maxStops);
+        }
+        return new Result(stops, specs.size() * positions, nanos);
+    }
+
+    /** The letter-connection graph of a crib against its ciphertext. */
+    public static final class Menu {
+
+        /** The menu for PLAIN at OFFSET in CIPHER, over ALPHABET. */
+        Menu(Alphabet alphabet, String cipher, String plain, int offset) {
+            if (offset < 0 || offset + plain.length() > cipher.length()) {
+                throw error("crib does not fit the ciphertext there");
+            } else if (plain.isEmpty()) {
+                throw error("crib is empty");
+            }
+            _alphabet = alphabet;
+            _size = alphabet.size();
+            _offset = offset;
+            int len = plain.length();
+            _from = new int[len];
+            _to = new int[len];
+            int[] degree = new int[_size];
+            for (int i = 0; i < len; i++) {
+                _from[i] = alphabet.toInt(plain.charAt(i));
+                _to[i] = alphabet.toInt(cipher.charAt(offset + i));
+                if (_from[i] == _to[i]) {
+                    throw error("crib letter %c enciphers to itself",
+                                plain.charAt(i));
+                }
+                degree[_from[i]] += 1;
+                degree[_to[i]] += 1;
+            }
+            _edges = new int[_size][];
+            int test = 0;
+            for (int c = 0; c < _size; c++) {
+                _edges[c] = new int[degree[c]];
+                if (degree[c] > degree[test]) {
+                    test = c;
+                }
+            }
+            _test = test;
+            int[] filled = new int[_size];
+            for (int i = 0; i < len; i++) {
+                _edges[_from[i]][filled[_from[i]]++] = i;
+                _edges[_to[i]][filled[_to[i]]++] = i;
+            }
+        }
+
+        /** Return the number of edges (crib positions) in me. */
+        public int edges() {
+            return _from.length;
+        }
+
+        /** Return the number of distinct letters joined by my edges. */
+        public int letters() {
+            int count = 0;
+            for (int[] e : _edges) {
+                count += e.length > 0 ? 1 : 0;
+            }
+            return count;
+        }
+
+        /** Return the number of independent closed loops in me.  The more
+         *  loops, the fewer false stops. */
+        public int loops() {
+            int[] parent = new int[_size];
+            for (int c = 0; c < _size; c++) {
+                parent[c] = c;
+            }
+            int loops = 0;
+            for (int i = 0; i < _from.length; i++) {
+                int a = root(parent, _from[i]);
+                int b = root(parent, _to[i]);
+                if (a == b) {
+                    loops += 1;
+                } else {
+                    parent[a] = b;
+                }
+            }
+            return loops;
+        }
+
+        /** Return the letter whose plugboard partner the Bombe tests. */
+        public char testLetter() {
+            return _alphabet.toChar(_test);
+        }
+
+        /** Return the offset of the crib in the ciphertext. */
+        public int offset() {
+            return _offset;
+        }
+
+        /** Return the root of C in the union-find forest PARENT. */
+        private static int root(int[] parent, int c) {
+            while (parent[c] != c) {
+                parent[c] = parent[parent[c]];
+                c = parent[c];
+            }
+            return c;
+        }
+
+        /** Alphabet of the letters. */
+        private final Alphabet _alphabet;
+        /** Size of the alphabet. */
+        private final int _size;
+        /** Offset of the crib in the ciphertext. */
+        private final int _offset;
+        /** Plain letter of each edge. */
+        private final int[] _from;
+        /** Cipher letter of each edge. */
+        private final int[] _to;
+        /** Edges at each letter. */
+        private final int[][] _edges;
+        /** The test letter. */
+        private final int _test;
+    }
+
+    /** A setting at which the Bombe stopped. */
+    public static final class Stop {
+
+        /** A stop with rotors ROTORS starting at SETTING, where the test
+         *  letter TEST may be plugged to any of PARTNERS. */
+        Stop(String[] rotors, String setting, char test, String partners) {
+            _rotors = rotors.clone();
+            _setting = setting;
+            _test = test;
+            _partners = partners;
+        }
+
+        /** Return the names of my rotors, reflector first. */
+        public String[] rotors() {
+            return _rotors.clone();
+        }
+
+        /** Return the starting rotor settings, in the form taken by
+         *  Machine.setRotors, of the message the menu came from. */
+        public String setting() {
+            return _setting;
+        }
+
+        /** Return the letters the test letter may be plugged to. */
+        public String partners() {
+            return _partners;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %c:%s", String.join(" ", _rotors),
+                                 _setting, _test, _partners);
+        }
+
+        /** Rotor names. */
+        private final String[] _rotors;
+        /** Starting setting. */
+        private final String _setting;
+        /** Test letter. */
+        private final char _test;
+        /** Its possible partners. */
+        private final String _partners;
+    }
+
+    /** The outcome of a run. */
+    public static final class Result {
+
+        /** A result listing STOPS, found by trying POSITIONS settings in
+         *  NANOS nanoseconds. */
+        Result(List<Stop> stops, long positions, long nanos) {
+            _stops = Collections.unmodifiableList(stops);
+            _positions = positions;
+            _nanos = nanos;
+        }
+
+        /** Return the stops found. */
+        public List<Stop> stops() {
+            return _stops;
+        }
+
+        /** Return the number of settings tried, over all rotor orders. */
+        public long positions() {
+            return _positions;
+        }
+
+        /** Return the time the run took, in nanoseconds. */
+        public long nanos() {
+            return _nanos;
+        }
+
+        /** Return the number of settings tried per second. */
+        public double positionsPerSecond() {
+            return _nanos == 0 ? 0 : _positions * 1e9 / _nanos;
+        }
+
+        /** Stops found. */
+        private final List<Stop> _stops;
+        /** Settings tried. */
+        private final long _positions;
+        /** Duration. */
+        private final long _nanos;
+    }
+
+    /** The shared state of one run. */
+    private static final class Search {
+
+        /** A run of MENU over the rotor orders ORDERS, compiled as SPECS,
+         *  at POSITIONS starting settings each, keeping MAXSTOPS stops. */
+        Search(Menu menu, List<String[]> orders, List<MachineSpec> specs,
+               long positions, int maxStops) {
+            this.menu = menu;
+            this.orders = orders;
+            this.specs = specs;
+            this.positions = positions;
+            this.maxStops = maxStops;
+        }
+
+        /** Try the settings numbered LO <= k < HI, where setting k is
+         *  starting setting k % positions of rotor order k / positions. */
+        void run(long lo, long hi) {
+            int size = menu._size;
+            int slots = specs.get(0).numRotors();
+            int[] posns = new int[slots];
+            int[][] scramblers = new int[menu.edges()][size];
+            long[] live = new long[size];
+            int[] pending = new int[size * size];
+            for (long k = lo; k < hi && count.get() < maxStops; k++) {
+                MachineSpec spec = specs.get((int) (k / positions));
+                long setting = k % positions;
+                for (int i = slots - 1; i > 0; i--) {
+                    posns[i] = (int) (setting % size);
+                    setting /= size;
+                }
+                posns[0] = 0;
+                for (int p = 0; p < menu._offset; p++) {
+                    spec.advance(posns);
+                }
+                for (int[] scrambler : scramblers) {
+                    spec.advance(posns);
+                    for (int c = 0; c < size; c++) {
+                        scrambler[c] = spec.scramble(posns, c);
+                    }
+                }
+                long lit = close(scramblers, live, pending);
+                if (Long.bitCount(lit) < size) {
+                    stop(spec, (int) (k / positions), k % positions, lit);
+                }
+            }
+        }
+
+        /** Light the wire from the test letter to letter 0 and everything
+         *  it implies through SCRAMBLERS, the scrambler at each menu
+         *  position, and the diagonal board.  LIVE and PENDING are scratch
+         *  space.  Returns the lit wires of the test letter. */
+        private long close(int[][] scramblers, long[] live, int[] pending) {
+            int size = menu._size;
+            Arrays.fill(live, 0);
+            int top = 0;
+            live[menu._test] = 1L;
+            pending[top++] = menu._test * size;
+            while (top > 0) {
+                int wire = pending[--top];
+                int letter = wire / size;
+                int partner = wire % size;
+                if ((live[partner] & (1L << letter)) == 0) {
+                    live[partner] |= 1L << letter;
+                    pending[top++] = partner * size + letter;
+                }
+                for (int e : menu._edges[letter]) {
+                    int other = menu._from[e] == letter
+                        ? menu._to[e] : menu._from[e];
+                    int image = scramblers[e][partner];
+                    if ((live[other] & (1L << image)) == 0) {
+                        live[other] |= 1L << image;
+                        pending[top++] = other * size + image;
+                    }
+                }
+            }
+            return live[menu._test];
+        }
+
+        /** Record a stop for rotor order number ORDER, compiled as SPEC,
+         *  at starting setting number SETTING, where the test letter's lit
+         *  wires are LIT. */
+        private void stop(MachineSpec spec, int order, long setting,
+                          long lit) {
+            if (count.getAndIncrement() >= maxStops) {
+                return;
+            }
+            int size = menu._size;
+            int slots = spec.numRotors();
+            int[] posns = new int[slots];
+            for (int i = slots - 1; i > 0; i--) {
+                posns[i] = (int) (setting % size);
+                setting /= size;
+            }
+            long possible = Long.bitCount(lit) == 1 ? lit : ~lit;
+            StringBuilder partners = new StringBuilder();
+            for (int c = 0; c < size; c++) {
+                if ((possible & (1L << c)) != 0) {
+                    partners.append(menu._alphabet.toChar(c));
+                }
+            }
+            Stop found = new Stop(orders.get(order),
+                spec.setting(new MachineState(posns)), menu.testLetter(),
+                partners.toString());
+            synchronized (stops) {
+                stops.add(found);
+            }
+        }
+
+        /** The menu being run. */
+        final Menu menu;
+        /** Rotor orders. */
+        final List<String[]> orders;
+        /** Their compiled scramblers. */
+        final List<MachineSpec> specs;
+        /** Number of starting settings per order. */
+        final long positions;
+        /** Most stops to report. */
+        final int maxStops;
+        /** Stops found so far. */
+        final List<Stop> stops = new ArrayList<>();
+        /** Number of stops found so far. */
+        final AtomicInteger count = new AtomicInteger();
+    }
+
+    /** Largest number of settings tried by a single task. */
+    static final int LEAF_POSITIONS = 1 << 10;
+
+    /** Pool on which settings are searched. */
+    private final ForkJoinPool _pool;
+    /** Source of compiled scramblers. */
+    private final SpecCache _specs;
+}
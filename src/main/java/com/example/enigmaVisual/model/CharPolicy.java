@@ -0,0 +1,15 @@
+package com.example.enigmaVisual.model;
+
+/** What the bulk conversion methods of Machine and CompiledMachine do with
+ *  an input character that is not in the machine's alphabet.
+ *  @author Andy Jiang
+ */
+public enum CharPolicy {
+    /** Drop the character from the output. */
+    SKIP,
+    /** Copy the character to the output unchanged. */
+    PASS,
+    /** Drop spaces and report any other character as an error, which is
+     *  how Machine.convert(String) treats its input. */
+    REJECT
+}
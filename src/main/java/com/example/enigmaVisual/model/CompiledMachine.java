@@ -0,0 +1,157 @@
+package com.example.enigmaVisual.model;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+
+/** A configured Machine flattened into int[] wiring tables: a MachineSpec
+ *  paired with its own MachineState.  Converting a character walks plain
+ *  arrays: no boxing, no alphabet scans, no virtual rotor calls and no
+ *  allocation.  A CompiledMachine produces exactly the same output as the
+ *  Machine it was compiled from, starting at that machine's rotor
+ *  settings at the time of compilation.
+ *  @author Andy Jiang
+ */
+public final class CompiledMachine {
+
+    /** A compiled copy of M, which must have its rotors inserted.  Later
+     *  changes to M (or to its rotors) do not affect the copy. */
+    public CompiledMachine(Machine m) {
+        this(MachineSpec.of(m), m.usedRotors());
+    }
+
+    /** A machine running SPEC from the current settings of ROTORS, the
+     *  rotors SPEC was made from. */
+    private CompiledMachine(MachineSpec spec, ArrayList<Rotor> rotors) {
+        this(spec, spec.stateOf(rotors));
+    }
+
+    /** A machine running SPEC from STATE. */
+    private CompiledMachine(MachineSpec spec, MachineState state) {
+        _spec = spec;
+        _state = state;
+    }
+
+    /** A machine running SPEC, starting at the settings in STATE, which
+     *  it takes over. */
+    public static CompiledMachine of(MachineSpec spec, MachineState state) {
+        return new CompiledMachine(spec, state);
+    }
+
+    /** Return an independent copy of me at my current settings.  Copies
+     *  share my spec, so making one is cheap. */
+    public CompiledMachine copy() {
+        return new CompiledMachine(_spec, _state.copy());
+    }
+
+    /** Return my spec. */
+    public MachineSpec spec() {
+        return _spec;
+    }
+
+    /** Return my state. */
+    public MachineState state() {
+        return _state;
+    }
+
+    /** Return the number of rotor slots I have. */
+    int numRotors() {
+        return _spec.numRotors();
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _spec.alphabet();
+    }
+
+    /** Return the current setting of the rotor in slot I. */
+    int setting(int i) {
+        return _state.positions()[i];
+    }
+
+    /** Returns the result of converting the input character C (as an
+     *  index in the range 0..alphabet size - 1), after first advancing
+     *  the machine. */
+    public int convert(int c) {
+        return _spec.convert(_state, c);
+    }
+
+    /** Advance my rotors as if PRESSES characters had been converted,
+     *  without converting any.  After the first call, takes time bounded
+     *  by the number of settings of my rotating rotors other than the
+     *  rightmost, however large PRESSES is. */
+    public void seek(long presses) {
+        _spec.seek(_state, presses);
+    }
+
+    /** Return my rotor settings after PRESSES more characters have been
+     *  converted, as a string in the form taken by Machine.setRotors,
+     *  without changing my settings. */
+    public String stateAt(long presses) {
+        return _spec.stateAt(_state, presses);
+    }
+
+    /** Return my current rotor settings as a string in the form taken by
+     *  Machine.setRotors. */
+    public String setting() {
+        return _spec.setting(_state);
+    }
+
+    /** Returns the encoding/decoding of MSG, updating the state of
+     *  the rotors accordingly.  Spaces are dropped, as in Machine. */
+    public String convert(String msg) {
+        return _spec.convert(_state, msg);
+    }
+
+    /** Convert the LEN characters of SRC starting at OFF into DST starting
+     *  at DSTOFF, treating characters outside my alphabet as by
+     *  CharPolicy.REJECT.  Returns the number of characters written. */
+    public int convert(char[] src, int off, int len, char[] dst, int dstOff) {
+        return convert(src, off, len, dst, dstOff, CharPolicy.REJECT);
+    }
+
+    /** Convert the LEN characters of SRC starting at OFF into DST starting
+     *  at DSTOFF, treating characters outside my alphabet according to
+     *  POLICY.  Returns the number of characters written, which is at
+     *  most LEN.  SRC and DST may be the same array if DSTOFF <= OFF. */
+    public int convert(char[] src, int off, int len, char[] dst, int dstOff,
+                       CharPolicy policy) {
+        return _spec.convert(_state, src, off, len, dst, dstOff, policy);
+    }
+
+    /** Convert the LEN single-byte characters of SRC starting at OFF into
+     *  DST starting at DSTOFF, treating characters outside my alphabet
+     *  according to POLICY.  Returns the number of bytes written.  SRC and
+     *  DST may be the same array if DSTOFF <= OFF.  Throws an
+     *  EnigmaException unless my alphabet consists of characters below
+     *  256. */
+    public int convert(byte[] src, int off, int len, byte[] dst, int dstOff,
+                       CharPolicy policy) {
+        return _spec.convert(_state, src, off, len, dst, dstOff, policy);
+    }
+
+    /** Convert characters from SRC into DST until SRC is exhausted or DST
+     *  is full, treating characters outside my alphabet according to
+     *  POLICY.  Both buffers' positions advance past the characters read
+     *  and written.  Returns the number of characters written. */
+    public int convert(CharBuffer src, CharBuffer dst, CharPolicy policy) {
+        return _spec.convert(_state, src, dst, policy);
+    }
+
+    /** Return the number of the LEN characters of SRC starting at OFF that
+     *  would be converted (rather than skipped or passed through) under
+     *  POLICY.  Throws an exception if POLICY rejects any of them. */
+    int countConverted(char[] src, int off, int len, CharPolicy policy) {
+        return _spec.countConverted(src, off, len, policy);
+    }
+
+    /** Set the rotating rotors in ROTORS, which must be the rotors I was
+     *  compiled from, to my current settings. */
+    void copySettingsTo(ArrayList<Rotor> rotors) {
+        _spec.copySettingsTo(_state, rotors);
+    }
+
+    /** The fixed part of this machine. */
+    private final MachineSpec _spec;
+    /** The current rotor settings of this machine. */
+    private final MachineState _state;
+}
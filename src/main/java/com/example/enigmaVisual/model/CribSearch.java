@@ -0,0 +1,357 @@
+package com.example.enigmaVisual.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** A known-plaintext attack: given a ciphertext and a crib, a stretch of
+ *  plaintext believed to occur somewhere in the message, finds every key
+ *  (rotor order, ring setting and starting rotor settings, under a known
+ *  plugboard) that enciphers the crib to the ciphertext at some offset.
+ *
+ *  Since Enigma never enciphers a letter to itself, the crib can only sit
+ *  at offsets where no crib letter lines up with the same ciphertext
+ *  letter; other offsets are never tried.  Each key is checked by
+ *  stepping a bare array of rotor settings through the candidate offsets
+ *  and enciphering the crib a letter at a time until it disagrees with
+ *  the ciphertext, which for a wrong key is almost always at the first
+ *  letter.  The keyspace is cut into ranges searched concurrently on a
+ *  ForkJoinPool.
+ *  @author Andy Jiang
+ */
+public final class CribSearch {
+
+    /** A search on POOL for machines built from SPECS. */
+    public CribSearch(ForkJoinPool pool, SpecCache specs) {
+        _pool = pool;
+        _specs = specs;
+    }
+
+    /** A search on the common pool for machines built from SPECS. */
+    public CribSearch(SpecCache specs) {
+        this(ForkJoinPool.commonPool(), specs);
+    }
+
+    /** Return the offsets in CIPHERTEXT at which CRIB might have been
+     *  enciphered: those where no letter of CRIB lines up with the same
+     *  letter of CIPHERTEXT.  Spaces in both are ignored. */
+    public static int[] placements(String ciphertext, String crib) {
+        String cipher = ciphertext.replace(" ", "");
+        String plain = crib.replace(" ", "");
+        int[] result = new int[Math.max(0, cipher.length() - plain.length()
+                                           + 1)];
+        int count = 0;
+        for (int p = 0; p < result.length; p++) {
+            boolean possible = true;
+            for (int j = 0; j < plain.length() && possible; j++) {
+                possible = cipher.charAt(p + j) != plain.charAt(j);
+            }
+            if (possible) {
+                result[count++] = p;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /** Search for keys that encipher CRIB to CIPHERTEXT at some possible
+     *  offset, trying each rotor order in ORDERS (each listing rotor
+     *  names, reflector first), each ring setting in RINGS (null meaning
+     *  all rings at their 0 setting), and every starting setting of the
+     *  rotors, with plugboard PLUGBOARD.  Stops once MAXCANDIDATES keys
+     *  have been found. */
+    public Result search(String ciphertext, String crib,
+                         List<String[]> orders, List<String> rings,
+                         String plugboard, int maxCandidates) {
+        Alphabet alphabet = _specs.alphabet();
+        int[] cipher = indices(ciphertext, alphabet);
+        int[] plain = indices(crib, alphabet);
+        if (plain.length == 0) {
+            throw error("crib is empty");
+        }
+        int[] offsets = placements(ciphertext, crib);
+
+        List<Job> jobs = new ArrayList<>();
+        for (String[] order : orders) {
+            for (String ring : rings) {
+                jobs.add(new Job(order, ring,
+                                 _specs.get(order, ring, plugboard)));
+            }
+        }
+        long positions = 1;
+        int slots = orders.isEmpty() ? 1 : orders.get(0).length;
+        for (int i = 1; i < slots; i++) {
+            positions *= alphabet.size();
+        }
+        for (Job job : jobs) {
+            if (job.spec.numRotors() != slots) {
+                throw error("rotor orders differ in length");
+            }
+        }
+
+        Search search = new Search(jobs, positions, cipher, plain, offsets,
+                                   maxCandidates);
+        long start = System.nanoTime();
+        if (offsets.length > 0 && !jobs.isEmpty()) {
+            _pool.invoke(new KeyRangeTask(search::run, 0,
+                                          jobs.size() * positions,
+                                          LEAF_KEYS));
+        }
+        long nanos = System.nanoTime() - start;
+        List<Candidate> found = new ArrayList<>(search.found);
+        if (found.size() > maxCandidates) {
+            found = found.subList(0, maxCandidates);
+        }
+        return new Result(found, offsets, search.keys.get(), nanos);
+    }
+
+    /** Return the indices in ALPHABET of the characters of TEXT, leaving
+     *  out spaces. */
+    private static int[] indices(String text, Alphabet alphabet) {
+        String letters = text.replace(" ", "");
+        int[] result = new int[letters.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = alphabet.toInt(letters.charAt(i));
+        }
+        return result;
+    }
+
+    /** A key found by a search. */
+    public static final class Candidate {
+
+        /** A key with rotors ROTORS, rings RINGS, and rotors starting at
+         *  SETTING, under which the crib enciphers to the ciphertext at
+         *  OFFSET. */
+        Candidate(String[] rotors, String rings, String setting,
+                  int offset) {
+            _rotors = rotors.clone();
+            _rings = rings;
+            _setting = setting;
+            _offset = offset;
+        }
+
+        /** Return the names of my rotors, reflector first. */
+        public String[] rotors() {
+            return _rotors.clone();
+        }
+
+        /** Return my ring setting, or null if all rings are at 0. */
+        public String rings() {
+            return _rings;
+        }
+
+        /** Return my starting rotor settings, in the form taken by
+         *  Machine.setRotors. */
+        public String setting() {
+            return _setting;
+        }
+
+        /** Return the offset in the ciphertext at which the crib
+         *  starts. */
+        public int offset() {
+            return _offset;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %s @%d", String.join(" ", _rotors),
+                                 _setting, _rings == null ? "-" : _rings,
+                                 _offset);
+        }
+
+        /** Rotor names. */
+        private final String[] _rotors;
+        /** Ring setting. */
+        private final String _rings;
+        /** Starting setting. */
+        private final String _setting;
+        /** Crib offset. */
+        private final int _offset;
+    }
+
+    /** The outcome of a search. */
+    public static final class Result {
+
+        /** A result listing CANDIDATES, found by trying KEYS keys at the
+         *  crib offsets PLACEMENTS in NANOS nanoseconds. */
+        Result(List<Candidate> candidates, int[] placements, long keys,
+               long nanos) {
+            _candidates = Collections.unmodifiableList(candidates);
+            _placements = placements;
+            _keys = keys;
+            _nanos = nanos;
+        }
+
+        /** Return the keys found. */
+        public List<Candidate> candidates() {
+            return _candidates;
+        }
+
+        /** Return the crib offsets that were tried. */
+        public int[] placements() {
+            return _placements.clone();
+        }
+
+        /** Return the number of keys tried. */
+        public long keys() {
+            return _keys;
+        }
+
+        /** Return the time the search took, in nanoseconds. */
+        public long nanos() {
+            return _nanos;
+        }
+
+        /** Return the number of keys tried per second. */
+        public double keysPerSecond() {
+            return _nanos == 0 ? 0 : _keys * 1e9 / _nanos;
+        }
+
+        /** Keys found. */
+        private final List<Candidate> _candidates;
+        /** Offsets tried. */
+        private final int[] _placements;
+        /** Keys tried. */
+        private final long _keys;
+        /** Duration. */
+        private final long _nanos;
+    }
+
+    /** One rotor order and ring setting, with its compiled spec. */
+    private static final class Job {
+        /** The rotor order ORDER with ring setting RINGS, compiled to
+         *  SPEC. */
+        Job(String[] order, String rings, MachineSpec spec) {
+            this.order = order;
+            this.rings = rings;
+            this.spec = spec;
+        }
+
+        /** Rotor names. */
+        final String[] order;
+        /** Ring setting. */
+        final String rings;
+        /** Compiled machine. */
+        final MachineSpec spec;
+    }
+
+    /** The shared, read-mostly state of one search. */
+    private static final class Search {
+        /** A search through each of JOBS at each of POSITIONS starting
+         *  settings for CRIB at one of OFFSETS in CIPHER, stopping after
+         *  MAXCANDIDATES finds. */
+        Search(List<Job> jobs, long positions, int[] cipher, int[] crib,
+               int[] offsets, int maxCandidates) {
+            this.jobs = jobs;
+            this.positions = positions;
+            this.cipher = cipher;
+            this.crib = crib;
+            this.offsets = offsets;
+            this.maxCandidates = maxCandidates;
+        }
+
+        /** Try the keys numbered LO <= k < HI, where key k is starting
+         *  setting k % positions of job k / positions. */
+        void run(long lo, long hi) {
+            int slots = jobs.get(0).spec.numRotors();
+            int[] walk = new int[slots];
+            int[] probe = new int[slots];
+            int last = offsets[offsets.length - 1];
+            long k = lo;
+            while (k < hi && hits.get() < maxCandidates) {
+                Job job = jobs.get((int) (k / positions));
+                MachineSpec spec = job.spec;
+                int size = spec.alphabet().size();
+                long end = Math.min(hi, (k / positions + 1) * positions);
+                for (; k < end; k++) {
+                    long setting = k % positions;
+                    for (int i = slots - 1; i > 0; i--) {
+                        walk[i] = (int) (setting % size);
+                        setting /= size;
+                    }
+                    walk[0] = 0;
+                    long first = k % positions;
+                    int next = 0;
+                    for (int p = 0; p <= last; p++) {
+                        if (p == offsets[next]) {
+                            next += 1;
+                            if (matches(spec, walk, probe, p)) {
+                                found(job, first, p);
+                            }
+                        }
+                        spec.advance(walk);
+                    }
+                }
+                keys.addAndGet(end - Math.min(end, lo));
+                lo = end;
+            }
+        }
+
+        /** Return true iff the machine SPEC with its rotors at WALK, having
+         *  converted P characters, enciphers the crib to the ciphertext
+         *  starting at P.  PROBE is scratch space. */
+        private boolean matches(MachineSpec spec, int[] walk, int[] probe,
+                                int p) {
+            System.arraycopy(walk, 0, probe, 0, walk.length);
+            for (int j = 0; j < crib.length; j++) {
+                spec.advance(probe);
+                if (spec.scramble(probe, crib[j]) != cipher[p + j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Record that JOB, starting at setting number SETTING, matched
+         *  the crib at OFFSET. */
+        private void found(Job job, long setting, int offset) {
+            if (hits.getAndIncrement() >= maxCandidates) {
+                return;
+            }
+            int slots = job.spec.numRotors();
+            int size = job.spec.alphabet().size();
+            int[] posns = new int[slots];
+            for (int i = slots - 1; i > 0; i--) {
+                posns[i] = (int) (setting % size);
+                setting /= size;
+            }
+            String start = job.spec.setting(new MachineState(posns));
+            synchronized (found) {
+                found.add(new Candidate(job.order, job.rings, start,
+                                        offset));
+            }
+        }
+
+        /** Rotor orders and rings to try. */
+        final List<Job> jobs;
+        /** Number of starting settings per job. */
+        final long positions;
+        /** Ciphertext, as indices. */
+        final int[] cipher;
+        /** Crib, as indices. */
+        final int[] crib;
+        /** Possible crib offsets, ascending. */
+        final int[] offsets;
+        /** Most keys to report. */
+        final int maxCandidates;
+        /** Keys found so far. */
+        final List<Candidate> found = new ArrayList<>();
+        /** Number of keys found so far. */
+        final AtomicInteger hits = new AtomicInteger();
+        /** Number of keys tried so far. */
+        final AtomicLong keys = new AtomicLong();
+    }
+
+    /** Largest number of keys tried by a single task. */
+    static final int LEAF_KEYS = 1 << 12;
+
+    /** Pool on which the keyspace is searched. */
+    private final ForkJoinPool _pool;
+    /** Source of compiled machines. */
+    private final SpecCache _specs;
+}
@@ -0,0 +1,161 @@
+package com.example.enigmaVisual.model;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** A Writer that passes characters on to another Appendable in groups of
+ *  a fixed size (five, traditionally), separated by spaces, starting a
+ *  new line once a line holds as many groups as fit in a given width.
+ *  Separators are inserted as the characters go by, and runs of
+ *  characters are handed on as they are, with no intermediate Strings,
+ *  so that formatting costs nothing in proportion to the length of the
+ *  message beyond copying it.  Text already held as single bytes may be
+ *  written too, and goes straight through, undecoded, to an Appendable
+ *  that is also an OutputStream.
+ *  @author Andy Jiang
+ */
+public final class GroupWriter extends Writer {
+
+    /** A writer onto OUT putting characters in groups of GROUPSIZE, and
+     *  ending lines with LINESEPARATOR once they hold as many groups as
+     *  fit in LINEWIDTH characters, or never if LINEWIDTH is 0. */
+    public GroupWriter(Appendable out, int groupSize, int lineWidth,
+                       String lineSeparator) {
+        if (groupSize <= 0) {
+            throw error("group size must be positive: %d", groupSize);
+        }
+        if (lineWidth < 0) {
+            throw error("line width must not be negative: %d", lineWidth);
+        }
+        _out = out;
+        _groupSize = groupSize;
+        _groupsPerLine =
+            lineWidth == 0 ? 0 : Math.max(1, (lineWidth + 1) / (groupSize + 1));
+        _lineSeparator = lineSeparator;
+    }
+
+    /** A writer onto OUT putting characters in groups of five on lines
+     *  of unlimited length. */
+    public GroupWriter(Appendable out) {
+        this(out, DEFAULT_GROUP_SIZE, 0, System.lineSeparator());
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        startGroup();
+        _out.append((char) c);
+        _inGroup += 1;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            startGroup();
+            int n = Math.min(len, _groupSize - _inGroup);
+            if (_out instanceof Writer) {
+                ((Writer) _out).write(cbuf, off, n);
+            } else if (_out instanceof StringBuilder) {
+                ((StringBuilder) _out).append(cbuf, off, n);
+            } else {
+                _out.append(CharBuffer.wrap(cbuf, off, n));
+            }
+            _inGroup += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        while (len > 0) {
+            startGroup();
+            int n = Math.min(len, _groupSize - _inGroup);
+            _out.append(str, off, off + n);
+            _inGroup += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /** Write the LEN characters of B starting at OFF, each a single byte
+     *  in ISO-8859-1 (as ASCII text is).  If my output is an
+     *  OutputStream, runs of them are written to it as they are, and
+     *  must then be in its encoding, as must my separators. */
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            startGroup();
+            int n = Math.min(len, _groupSize - _inGroup);
+            if (_out instanceof OutputStream) {
+                ((OutputStream) _out).write(b, off, n);
+            } else {
+                for (int i = off; i < off + n; i++) {
+                    _out.append((char) (b[i] & 0xFF));
+                }
+            }
+            _inGroup += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /** End the current line, so that the next character starts the first
+     *  group of a new line. */
+    public void newLine() throws IOException {
+        _out.append(_lineSeparator);
+        _inGroup = 0;
+        _groups = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (_out instanceof Flushable) {
+            ((Flushable) _out).flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_out instanceof Closeable) {
+            ((Closeable) _out).close();
+        }
+    }
+
+    /** Make room in the current group for at least one more character,
+     *  writing a separator first if it is full. */
+    private void startGroup() throws IOException {
+        if (_inGroup == _groupSize) {
+            if (_groups == _groupsPerLine) {
+                _out.append(_lineSeparator);
+                _groups = 0;
+            } else {
+                _out.append(' ');
+            }
+            _inGroup = 0;
+        }
+        if (_inGroup == 0) {
+            _groups += 1;
+        }
+    }
+
+    /** Letters per group unless told otherwise. */
+    public static final int DEFAULT_GROUP_SIZE = 5;
+
+    /** Where output goes. */
+    private final Appendable _out;
+    /** Characters per group. */
+    private final int _groupSize;
+    /** Groups per line, or 0 for no limit. */
+    private final int _groupsPerLine;
+    /** Ends lines. */
+    private final String _lineSeparator;
+    /** Characters in the current group. */
+    private int _inGroup;
+    /** Groups started on the current line. */
+    private int _groups;
+}
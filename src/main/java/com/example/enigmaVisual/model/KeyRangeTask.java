@@ -0,0 +1,48 @@
+package com.example.enigmaVisual.model;
+
+import java.util.concurrent.RecursiveAction;
+
+/** A task that hands a range of key numbers to a body, splitting the
+ *  range in half until the pieces are small enough to run as one.
+ *  @author Andy Jiang
+ */
+final class KeyRangeTask extends RecursiveAction {
+
+    /** What to do with a range of keys. */
+    interface Body {
+        /** Try the keys numbered LO <= k < HI. */
+        void run(long lo, long hi);
+    }
+
+    /** A task applying BODY to the keys LO <= k < HI, in pieces of at
+     *  most LEAF keys. */
+    KeyRangeTask(Body body, long lo, long hi, long leaf) {
+        _body = body;
+        _lo = lo;
+        _hi = hi;
+        _leaf = leaf;
+    }
+
+    @Override
+    protected void compute() {
+        if (_hi - _lo <= _leaf) {
+            _body.run(_lo, _hi);
+        } else {
+            long mid = (_lo + _hi) >>> 1;
+            invokeAll(new KeyRangeTask(_body, _lo, mid, _leaf),
+                new KeyRangeTask(_body, mid, _hi, _leaf));
+        }
+    }
+
+    /** Version of my serialized form, which RecursiveAction has. */
+    private static final long serialVersionUID = 1L;
+
+    /** What to do with each piece. */
+    private final Body _body;
+    /** First key. */
+    private final long _lo;
+    /** One past the last key. */
+    private final long _hi;
+    /** Largest piece run as one. */
+    private final long _leaf;
+}
@@ -0,0 +1,112 @@
+package com.example.enigmaVisual.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/** Splits the bytes read from a channel into lines, a large buffer at a
+ *  time, without decoding them.  Lines end at "\n", "\r\n" or "\r", as
+ *  for Scanner.nextLine, and a last line need not be terminated.  The
+ *  current line is left in place in the buffer, where it can be read
+ *  until the next call to next; the buffer grows as needed to hold the
+ *  longest line.
+ *  @author Andy Jiang
+ */
+final class LineReader {
+
+    /** A reader of lines from IN, reading BUFFERSIZE bytes at a time. */
+    LineReader(ReadableByteChannel in, int bufferSize) {
+        _in = in;
+        _buf = new byte[bufferSize];
+    }
+
+    /** Move to the next line, returning false if there is none. */
+    boolean next() throws IOException {
+        _start = _next;
+        int scan = _start;
+        while (true) {
+            for (int i = scan; i < _limit; i++) {
+                byte b = _buf[i];
+                if (b == '\n') {
+                    _end = i;
+                    _next = i + 1;
+                    return true;
+                } else if (b == '\r') {
+                    if (i + 1 == _limit && !_eof) {
+                        break;
+                    }
+                    _end = i;
+                    _next = i + 1 < _limit && _buf[i + 1] == '\n'
+                        ? i + 2 : i + 1;
+                    return true;
+                }
+                scan = i + 1;
+            }
+            if (_eof) {
+                if (_start == _limit) {
+                    return false;
+                }
+                _end = _next = _limit;
+                return true;
+            }
+            scan -= _start;
+            fill();
+        }
+    }
+
+    /** Move the current line to the front of the buffer, growing it if
+     *  the line fills it, and read more bytes after it. */
+    private void fill() throws IOException {
+        int kept = _limit - _start;
+        if (kept == _buf.length) {
+            _buf = Arrays.copyOf(_buf, 2 * _buf.length);
+        } else if (_start > 0) {
+            System.arraycopy(_buf, _start, _buf, 0, kept);
+        }
+        _start = 0;
+        _limit = kept;
+        ByteBuffer window = ByteBuffer.wrap(_buf, _limit,
+                                            _buf.length - _limit);
+        int n;
+        do {
+            n = _in.read(window);
+        } while (n == 0);
+        if (n < 0) {
+            _eof = true;
+        } else {
+            _limit += n;
+        }
+    }
+
+    /** Return the array holding the current line. */
+    byte[] array() {
+        return _buf;
+    }
+
+    /** Return the index in array() of the current line's first byte. */
+    int start() {
+        return _start;
+    }
+
+    /** Return the index in array() just past the current line's last
+     *  byte, not counting its terminator. */
+    int end() {
+        return _end;
+    }
+
+    /** Source of bytes. */
+    private final ReadableByteChannel _in;
+    /** Bytes read and not yet consumed, starting with the current line. */
+    private byte[] _buf;
+    /** Number of valid bytes in _buf. */
+    private int _limit;
+    /** Start of the current line. */
+    private int _start;
+    /** End of the current line, before its terminator. */
+    private int _end;
+    /** Start of the next line. */
+    private int _next;
+    /** True once _in is exhausted. */
+    private boolean _eof;
+}
@@ -1,5 +1,9 @@
 package com.example.enigmaVisual.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 
 /** Class that represents a complete enigma machine.
@@ -29,10 +33,40 @@ public class Machine {
         } else {
             _allRotors = allRotors;
         }
+        _catalog = new RotorCatalog(alpha, allRotors);
         _usedRotors = new ArrayList<Rotor>(numRotors);
         _plugboard = new Permutation("", alpha);
     }
 
+    /** A new Enigma machine with 1 < NUMROTORS rotor slots and
+     *  0 <= PAWLS < NUMROTORS pawls, using the rotors in CATALOG, over
+     *  its alphabet. */
+    public Machine(RotorCatalog catalog, int numRotors, int pawls) {
+        this(catalog.alphabet(), numRotors, pawls,
+             new ArrayList<>(catalog.rotors()));
+    }
+
+    /** Return a machine read from a snapshot in IN, as written by
+     *  write. */
+    public static Machine read(DataInput in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new EnigmaException("not a machine snapshot");
+        }
+        int numRotors = in.readInt();
+        int pawls = in.readInt();
+        return new Machine(RotorCatalog.read(in), numRotors, pawls);
+    }
+
+    /** Write a snapshot of my shape and available rotors to OUT, from
+     *  which read makes a machine like me before any rotors were
+     *  inserted. */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(_numRotors);
+        out.writeInt(_numPawls);
+        _catalog.write(out);
+    }
+
     /** Return the number of rotor slots I have. */
     int numRotors() {
         return _numRotors;
@@ -43,21 +77,33 @@ public class Machine {
         return _numPawls;
     }
 
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
-     *  Initially, all rotors are set at their 0 setting. */
+     *  Initially, all rotors are set at their 0 setting.  Throws an
+     *  EnigmaException, leaving my slots as they were, if a name is not
+     *  that of an available rotor or names a rotor used already. */
     public void insertRotors(String[] rotors) {
         if (rotors.length != numRotors()) {
             throw new EnigmaException("wrong number of rotors");
         }
-        _usedRotors = new ArrayList<>();
+        ArrayList<Rotor> used = new ArrayList<>(numRotors());
         for (int i = 0; i < numRotors(); i++) {
-            for (Rotor r : _allRotors) {
-                if (r.name().equals(rotors[i])) {
-                    _usedRotors.add(i, r);
-                }
+            if (rotors[i] == null) {
+                throw new EnigmaException("wrong number of rotors");
             }
+            Rotor r = _catalog.get(rotors[i]);
+            if (used.contains(r)) {
+                throw new EnigmaException("rotor " + rotors[i]
+                                          + " used twice");
+            }
+            used.add(r);
         }
+        _usedRotors = used;
     }
 
     /** Set my rotors according to SETTING, which must be a string of
@@ -126,12 +172,92 @@ public class Machine {
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     public String convert(String msg) {
-        String result = "";
-        for (char c : msg.replace(" ", "").toCharArray()) {
-            result += _alphabet.toChar(convert(_alphabet.toInt(c)));
+        CompiledMachine compiled = compile();
+        try {
+            return compiled.convert(msg);
+        } finally {
+            compiled.copySettingsTo(_usedRotors);
+        }
+    }
+
+    /** Convert the LEN characters of SRC starting at OFF into DST starting
+     *  at DSTOFF, treating characters outside my alphabet as by
+     *  CharPolicy.REJECT.  Returns the number of characters written. */
+    public int convert(char[] src, int off, int len, char[] dst, int dstOff) {
+        return convert(src, off, len, dst, dstOff, CharPolicy.REJECT);
+    }
+
+    /** Convert the LEN characters of SRC starting at OFF into DST starting
+     *  at DSTOFF, treating characters outside my alphabet according to
+     *  POLICY and updating the state of the rotors accordingly.  Returns
+     *  the number of characters written.  SRC and DST may be the same
+     *  array if DSTOFF <= OFF. */
+    public int convert(char[] src, int off, int len, char[] dst, int dstOff,
+                       CharPolicy policy) {
+        CompiledMachine compiled = compile();
+        try {
+            return compiled.convert(src, off, len, dst, dstOff, policy);
+        } finally {
+            compiled.copySettingsTo(_usedRotors);
         }
-        return result;
     }
+
+    /** Convert the LEN single-byte characters of SRC starting at OFF into
+     *  DST starting at DSTOFF, treating characters outside my alphabet
+     *  according to POLICY and updating the state of the rotors
+     *  accordingly.  Returns the number of bytes written. */
+    public int convert(byte[] src, int off, int len, byte[] dst, int dstOff,
+                       CharPolicy policy) {
+        CompiledMachine compiled = compile();
+        try {
+            return compiled.convert(src, off, len, dst, dstOff, policy);
+        } finally {
+            compiled.copySettingsTo(_usedRotors);
+        }
+    }
+
+    /** Convert characters from SRC into DST until SRC is exhausted or DST
+     *  is full, treating characters outside my alphabet according to
+     *  POLICY and updating the state of the rotors accordingly.  Returns
+     *  the number of characters written. */
+    public int convert(CharBuffer src, CharBuffer dst, CharPolicy policy) {
+        CompiledMachine compiled = compile();
+        try {
+            return compiled.convert(src, dst, policy);
+        } finally {
+            compiled.copySettingsTo(_usedRotors);
+        }
+    }
+
+    /** Advance my rotors as if POSITION characters had been converted
+     *  from their current settings, without stepping through each one. */
+    public void seek(long position) {
+        CompiledMachine compiled = compile();
+        compiled.seek(position);
+        compiled.copySettingsTo(_usedRotors);
+    }
+
+    /** Return my rotor settings after POSITION more characters have been
+     *  converted, as a string in the form taken by setRotors.  My own
+     *  settings are unchanged. */
+    public String stateAt(long position) {
+        return compile().stateAt(position);
+    }
+
+    /** Return the immutable spec of my current configuration (rotor
+     *  order, ring settings and plugboard), which can be shared by any
+     *  number of MachineStates and threads. */
+    public MachineSpec spec() {
+        return MachineSpec.of(this);
+    }
+
+    /** Return a compiled copy of me, starting from my current rotor
+     *  settings, for converting characters without per-character
+     *  overhead. */
+    public CompiledMachine compile() {
+        return new CompiledMachine(this);
+    }
+
     /**
      * Getter function for all usable rotors.
      * @return All rotors.
@@ -154,6 +280,9 @@ public class Machine {
         return _plugboard;
     }
 
+    /** First bytes of a snapshot. */
+    private static final int SNAPSHOT_MAGIC = 0x454e4d43;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
 
@@ -163,6 +292,8 @@ public class Machine {
     private int _numPawls;
     /** List of all rotors. */
     private ArrayList<Rotor> _allRotors;
+    /** All rotors, by name. */
+    private final RotorCatalog _catalog;
     /** List of used rotors. */
     private ArrayList<Rotor> _usedRotors;
     /** Plugboard permutation. */
@@ -0,0 +1,97 @@
+package com.example.enigmaVisual.model;
+
+import java.util.Arrays;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** The configuration that determines a MachineSpec, in canonical form:
+ *  rotor names left to right, ring settings, and plugboard cycles.  Two
+ *  keys are equal iff they describe the same machine, however their
+ *  plugboards were written, so keys can index a cache of compiled specs.
+ *  The rotor settings are not part of the key.
+ *  @author Andy Jiang
+ */
+public final class MachineKey {
+
+    /** A key for rotors ROTORS (ROTORS[0] names the reflector), ring
+     *  setting RINGS, a string of ROTORS.length - 1 characters of ALPHABET
+     *  in the form taken by Machine.setRings, and plugboard PLUGBOARD in
+     *  cycle notation.  RINGS may be null or empty, meaning every ring is
+     *  at its 0 setting. */
+    public MachineKey(Alphabet alphabet, String[] rotors, String rings,
+                      String plugboard) {
+        if (rotors.length <= 1) {
+            throw error("wrong number of rotors");
+        }
+        _alphabet = alphabet;
+        _rotors = rotors.clone();
+        _rings = new int[rotors.length];
+        if (rings != null && !rings.isEmpty()) {
+            if (rings.length() != rotors.length - 1) {
+                throw new EnigmaException("wrong number of settings");
+            }
+            for (int i = 1; i < rotors.length; i++) {
+                _rings[i] = alphabet.toInt(rings.charAt(i - 1));
+            }
+        }
+        _plugboard = new Permutation(plugboard == null ? "" : plugboard,
+                                     alphabet);
+        StringBuilder text = new StringBuilder(String.join(" ", _rotors));
+        text.append(' ');
+        for (int i = 1; i < _rings.length; i++) {
+            text.appendCodePoint(alphabet.toCodePoint(_rings[i]));
+        }
+        text.append(' ').append(_plugboard);
+        _text = text.toString().trim();
+    }
+
+    /** Return the spec this key describes, taking rotors by name from
+     *  AVAILABLE, whose alphabet must be mine. */
+    MachineSpec compile(RotorCatalog available) {
+        Rotor[] rotors = new Rotor[_rotors.length];
+        for (int i = 0; i < rotors.length; i++) {
+            rotors[i] = available.get(_rotors[i]);
+            for (int j = 0; j < i; j++) {
+                if (rotors[j] == rotors[i]) {
+                    throw error("rotor %s used twice", _rotors[i]);
+                }
+            }
+        }
+        return new MachineSpec(_alphabet, Arrays.asList(rotors), _rings,
+                               _plugboard);
+    }
+
+    /** Return the number of rotor slots I describe. */
+    public int numRotors() {
+        return _rotors.length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MachineKey
+            && ((MachineKey) obj)._text.equals(_text);
+    }
+
+    @Override
+    public int hashCode() {
+        return _text.hashCode();
+    }
+
+    /** Return me as rotor names, ring settings and plugboard cycles,
+     *  separated by spaces. */
+    @Override
+    public String toString() {
+        return _text;
+    }
+
+    /** Alphabet of my rotors. */
+    private final Alphabet _alphabet;
+    /** Names of my rotors, left to right. */
+    private final String[] _rotors;
+    /** Ring setting of each slot; the reflector's is 0. */
+    private final int[] _rings;
+    /** My plugboard. */
+    private final Permutation _plugboard;
+    /** Canonical text of the whole key. */
+    private final String _text;
+}
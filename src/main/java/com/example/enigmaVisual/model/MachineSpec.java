@@ -0,0 +1,664 @@
+package com.example.enigmaVisual.model;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** The fixed part of a configured Enigma machine: alphabet, rotor order,
+ *  rotor wiring and notches, ring settings and plugboard, flattened into
+ *  int[] tables.  A MachineSpec is immutable and may be shared freely
+ *  between threads.  Everything that changes as characters are converted
+ *  lives in a MachineState, which is only an int[] of rotor settings, so
+ *  any number of sessions can run on one spec at once.  Converting a
+ *  character walks plain arrays: no boxing, no alphabet scans, no virtual
+ *  rotor calls and no allocation.
+ *  @author Andy Jiang
+ */
+public final class MachineSpec {
+
+    /** A spec for a machine with alphabet ALPHABET whose slots hold
+     *  ROTORS, left to right (ROTORS[0] is the reflector), with the ring
+     *  setting of the rotor in slot i given by RINGS[i], and with
+     *  plugboard PLUGBOARD.  Only the rotors' wiring, notches and names are
+     *  used, not their current settings. */
+    MachineSpec(Alphabet alphabet, List<Rotor> rotors, int[] rings,
+                Permutation plugboard) {
+        if (rotors.size() <= 1 || rings.length != rotors.size()) {
+            throw error("wrong number of rotors for machine spec");
+        }
+        _alphabet = alphabet;
+        _size = alphabet.size();
+        _numRotors = rotors.size();
+        _names = new String[_numRotors];
+        _forward = new int[_numRotors][];
+        _backward = new int[_numRotors][];
+        _notches = new boolean[_numRotors][];
+        _rotates = new boolean[_numRotors];
+        _rings = new int[_numRotors];
+        for (int i = 0; i < _numRotors; i++) {
+            Rotor r = rotors.get(i);
+            if (r.size() != _size) {
+                throw error("rotor %s does not fit the alphabet", r.name());
+            }
+            _names[i] = r.name();
+            _rings[i] = r.permutation().wrap(rings[i]);
+            _forward[i] = r.permutation().toArray();
+            _backward[i] = r.permutation().inverse().toArray();
+            _notches[i] = notchTable(r, _rings[i]);
+            _rotates[i] = r.rotates();
+        }
+        int first = _numRotors - 1;
+        while (first > 0 && _rotates[first - 1]) {
+            first -= 1;
+        }
+        _firstRotating = first;
+        _leftStates = leftStates();
+        long states = 1;
+        for (int i = 1; i < _numRotors && states > 0; i++) {
+            states = states <= Long.MAX_VALUE / _size ? states * _size : -1;
+        }
+        _packable = states > 0;
+        _plugboardPerm = plugboard;
+        _plugboard = plugboard.toArray();
+        _chars = _alphabet.isBmp() ? new char[_size] : null;
+        boolean bytes = _chars != null;
+        for (int i = 0; _chars != null && i < _size; i++) {
+            _chars[i] = _alphabet.toChar(i);
+            bytes &= _chars[i] <= MAX_BYTE_CHAR;
+        }
+        _bytes = bytes;
+    }
+
+    /** Return the spec of M, which must have its rotors inserted, using
+     *  its rotors' current ring settings and its current plugboard. */
+    public static MachineSpec of(Machine m) {
+        ArrayList<Rotor> rotors = m.usedRotors();
+        if (rotors.size() != m.numRotors()) {
+            throw new EnigmaException("rotors not inserted in machine");
+        }
+        int[] rings = new int[rotors.size()];
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = rotors.get(i).ringSetting();
+        }
+        return new MachineSpec(m.alphabet(), rotors, rings, m.plugboard());
+    }
+
+    /** Return a new state with my rotors at SETTING, a string of
+     *  numRotors() - 1 characters in my alphabet in the form taken by
+     *  Machine.setRotors.  The reflector is at its 0 setting. */
+    public MachineState newState(String setting) {
+        if (setting.length() != _numRotors - 1) {
+            throw new EnigmaException("wrong number of settings");
+        }
+        int[] posns = new int[_numRotors];
+        for (int i = 1; i < _numRotors; i++) {
+            int letter = _alphabet.toInt(setting.charAt(i - 1));
+            posns[i] = Math.floorMod(letter - _rings[i], _size);
+        }
+        return new MachineState(posns);
+    }
+
+    /** Return a copy of the forward wiring of the rotor in slot I. */
+    int[] forward(int i) {
+        return _forward[i].clone();
+    }
+
+    /** Return a copy of the backward wiring of the rotor in slot I. */
+    int[] backward(int i) {
+        return _backward[i].clone();
+    }
+
+    /** Return true iff the rotor in slot I is at a notch at setting
+     *  POSN. */
+    boolean atNotch(int i, int posn) {
+        return _notches[i][posn];
+    }
+
+    /** Return true iff the rotor in slot I rotates. */
+    boolean rotates(int i) {
+        return _rotates[i];
+    }
+
+    /** Return roughly how many bytes my wiring, notch and plugboard
+     *  tables occupy.  The table built by the first seek is not counted,
+     *  so my weight never changes. */
+    long weight() {
+        long words = (2L * _numRotors + 1) * _size;
+        return Integer.BYTES * words + (long) _numRotors * _size;
+    }
+
+    /** Return a new state holding the current settings of ROTORS, which
+     *  must be the rotors this spec was made from. */
+    MachineState stateOf(List<Rotor> rotors) {
+        int[] posns = new int[_numRotors];
+        for (int i = 0; i < _numRotors; i++) {
+            posns[i] = rotors.get(i).setting();
+        }
+        return new MachineState(posns);
+    }
+
+    /** Return STATE packed into a single long: its settings as a number
+     *  in base alphabet size, rightmost rotor least significant.  The
+     *  reflector's setting, always 0, is left out. */
+    public long pack(MachineState state) {
+        if (!_packable) {
+            throw error("machine state does not fit in a long");
+        }
+        int[] posns = state.positions();
+        long packed = 0;
+        for (int i = 1; i < _numRotors; i++) {
+            packed = packed * _size + posns[i];
+        }
+        return packed;
+    }
+
+    /** Return a new state from PACKED, as produced by pack. */
+    public MachineState unpack(long packed) {
+        if (!_packable) {
+            throw error("machine state does not fit in a long");
+        }
+        int[] posns = new int[_numRotors];
+        for (int i = _numRotors - 1; i > 0; i--) {
+            posns[i] = (int) (packed % _size);
+            packed /= _size;
+        }
+        return new MachineState(posns);
+    }
+
+    /** Return the number of rotor slots I have. */
+    public int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return my alphabet. */
+    public Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the name of the rotor in slot I. */
+    public String rotorName(int i) {
+        return _names[i];
+    }
+
+    /** Return the ring setting of the rotor in slot I. */
+    int ringSetting(int i) {
+        return _rings[i];
+    }
+
+    /** Return my plugboard. */
+    Permutation plugboard() {
+        return _plugboardPerm;
+    }
+
+    /** Returns the result of converting the input character C (as an
+     *  index in the range 0..alphabet size - 1) in STATE, after first
+     *  advancing STATE. */
+    public int convert(MachineState state, int c) {
+        int[] posns = state.positions();
+        advance(posns);
+        return scramble(posns, c);
+    }
+
+    /** Returns the result of converting the character with code point
+     *  CP in STATE, after first advancing STATE, as for one key press,
+     *  or -1 if CP is not in my alphabet, leaving STATE unchanged.
+     *  Records the path of the signal in PATH, which must have at least
+     *  pathLength() elements, as the code points of the contacts it
+     *  passes: after the plugboard, after each rotor from right to left
+     *  ending with the reflector, after each rotor but the reflector from
+     *  left to right, and after the plugboard again.  The last is the
+     *  result. */
+    public int trace(MachineState state, int cp, int[] path) {
+        int c = _alphabet.indexOf(cp);
+        if (c < 0) {
+            return -1;
+        }
+        int[] posns = state.positions();
+        advance(posns);
+        int last = _numRotors - 1;
+        int k = 0;
+        int curr = _plugboard[c];
+        path[k++] = _alphabet.toCodePoint(curr);
+        for (int i = last; i >= 0; i--) {
+            curr = through(_forward[i], posns[i], curr);
+            path[k++] = _alphabet.toCodePoint(curr);
+        }
+        for (int i = 1; i <= last; i++) {
+            curr = through(_backward[i], posns[i], curr);
+            path[k++] = _alphabet.toCodePoint(curr);
+        }
+        path[k] = _alphabet.toCodePoint(_plugboard[curr]);
+        return path[k];
+    }
+
+    /** Return the number of contacts in a path recorded by trace. */
+    public int pathLength() {
+        return 2 * _numRotors + 1;
+    }
+
+    /** Advance STATE as if PRESSES characters had been converted, without
+     *  converting any.  After the first call, takes time bounded by the
+     *  number of settings of my rotating rotors other than the rightmost,
+     *  however large PRESSES is. */
+    public void seek(MachineState state, long presses) {
+        seek(state.positions(), presses);
+    }
+
+    /** Return the rotor settings STATE would have after PRESSES more
+     *  characters were converted, as a string in the form taken by
+     *  Machine.setRotors, without changing STATE. */
+    public String stateAt(MachineState state, long presses) {
+        int[] posns = state.positions().clone();
+        seek(posns, presses);
+        return settingString(posns);
+    }
+
+    /** Return the rotor settings in STATE as a string in the form taken
+     *  by Machine.setRotors. */
+    public String setting(MachineState state) {
+        return settingString(state.positions());
+    }
+
+    /** Returns the encoding/decoding of MSG in STATE, updating STATE
+     *  accordingly.  Spaces are dropped, as in Machine. */
+    public String convert(MachineState state, String msg) {
+        if (!_alphabet.isBmp()) {
+            StringBuilder result = new StringBuilder(msg.length());
+            msg.codePoints().filter(c -> c != ' ').forEach(c -> {
+                int index = _alphabet.indexOf(c);
+                if (index < 0) {
+                    throw error("Character is not in alphabet: %c", c);
+                }
+                result.appendCodePoint(
+                    _alphabet.toCodePoint(convert(state, index)));
+            });
+            return result.toString();
+        }
+        char[] buf = msg.toCharArray();
+        int len = convert(state, buf, 0, buf.length, buf, 0,
+            CharPolicy.REJECT);
+        return new String(buf, 0, len);
+    }
+
+    /** Convert the LEN characters of SRC starting at OFF into DST starting
+     *  at DSTOFF in STATE, treating characters outside my alphabet
+     *  according to POLICY.  Returns the number of characters written,
+     *  which is at most LEN.  SRC and DST may be the same array if
+     *  DSTOFF <= OFF.  Throws an EnigmaException if my alphabet has
+     *  characters outside the Basic Multilingual Plane. */
+    public int convert(MachineState state, char[] src, int off, int len,
+                       char[] dst, int dstOff, CharPolicy policy) {
+        checkChars();
+        int out = dstOff;
+        for (int i = off; i < off + len; i++) {
+            char c = src[i];
+            int index = indexOf(c, policy);
+            if (index >= 0) {
+                dst[out++] = _chars[convert(state, index)];
+            } else if (policy == CharPolicy.PASS) {
+                dst[out++] = c;
+            }
+        }
+        return out - dstOff;
+    }
+
+    /** Convert the LEN single-byte characters of SRC starting at OFF into
+     *  DST starting at DSTOFF in STATE, treating characters outside my
+     *  alphabet according to POLICY.  Returns the number of bytes
+     *  written.  SRC and DST may be the same array if DSTOFF <= OFF.
+     *  Throws an EnigmaException unless my alphabet consists of
+     *  characters below 256. */
+    public int convert(MachineState state, byte[] src, int off, int len,
+                       byte[] dst, int dstOff, CharPolicy policy) {
+        checkBytes();
+        int out = dstOff;
+        for (int i = off; i < off + len; i++) {
+            byte b = src[i];
+            int index = indexOf((char) (b & 0xFF), policy);
+            if (index >= 0) {
+                dst[out++] = (byte) _chars[convert(state, index)];
+            } else if (policy == CharPolicy.PASS) {
+                dst[out++] = b;
+            }
+        }
+        return out - dstOff;
+    }
+
+    /** Convert characters from SRC into DST in STATE until SRC is
+     *  exhausted or DST is full, treating characters outside my alphabet
+     *  according to POLICY.  Both buffers' positions advance past the
+     *  characters read and written.  Returns the number of characters
+     *  written.  Throws an EnigmaException if my alphabet has characters
+     *  outside the Basic Multilingual Plane. */
+    public int convert(MachineState state, CharBuffer src, CharBuffer dst,
+                       CharPolicy policy) {
+        checkChars();
+        if (src.hasArray() && dst.hasArray()
+            && dst.remaining() >= src.remaining()) {
+            int len = src.remaining();
+            int written = convert(state, src.array(),
+                src.arrayOffset() + src.position(), len, dst.array(),
+                dst.arrayOffset() + dst.position(), policy);
+            src.position(src.position() + len);
+            dst.position(dst.position() + written);
+            return written;
+        }
+        int written = 0;
+        while (src.hasRemaining() && dst.hasRemaining()) {
+            char c = src.get();
+            int index = indexOf(c, policy);
+            if (index >= 0) {
+                dst.put(_chars[convert(state, index)]);
+                written += 1;
+            } else if (policy == CharPolicy.PASS) {
+                dst.put(c);
+                written += 1;
+            }
+        }
+        return written;
+    }
+
+    /** Return the number of the LEN characters of SRC starting at OFF that
+     *  would be converted (rather than skipped or passed through) under
+     *  POLICY.  Throws an exception if POLICY rejects any of them. */
+    int countConverted(char[] src, int off, int len, CharPolicy policy) {
+        int count = 0;
+        for (int i = off; i < off + len; i++) {
+            if (indexOf(src[i], policy) >= 0) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /** Set the rotating rotors in ROTORS, which must be the rotors this
+     *  spec was made from, to their settings in STATE. */
+    void copySettingsTo(MachineState state, List<Rotor> rotors) {
+        int[] posns = state.positions();
+        for (int i = 0; i < _numRotors; i++) {
+            if (_rotates[i]) {
+                rotors.get(i).set(posns[i]);
+            }
+        }
+    }
+
+    /** Return the result of passing C through plugboard and rotors at
+     *  the settings POSNS, without advancing them. */
+    int scramble(int[] posns, int c) {
+        int last = _numRotors - 1;
+        int curr = _plugboard[c];
+        for (int i = last; i >= 0; i--) {
+            curr = through(_forward[i], posns[i], curr);
+        }
+        for (int i = 1; i <= last; i++) {
+            curr = through(_backward[i], posns[i], curr);
+        }
+        return _plugboard[curr];
+    }
+
+    /** Return character number INDEX of my alphabet, which must consist
+     *  of single chars. */
+    char toChar(int index) {
+        return _chars[index];
+    }
+
+    /** Throw an EnigmaException unless my alphabet consists of single
+     *  chars, as converting arrays and buffers of chars requires. */
+    void checkChars() {
+        if (_chars == null) {
+            throw error("alphabet has characters outside the BMP");
+        }
+    }
+
+    /** Throw an EnigmaException unless my alphabet consists of characters
+     *  below 256, as converting arrays of bytes requires. */
+    void checkBytes() {
+        if (!_bytes) {
+            throw error("alphabet has characters above U+00FF");
+        }
+    }
+
+    /** Return the leftmost slot of the block of rotating rotors at the
+     *  right end, or -1 if the rotating rotors do not form such a
+     *  block. */
+    int firstRotating() {
+        if (!_rotates[_numRotors - 1]) {
+            return -1;
+        }
+        for (int i = 0; i < _firstRotating; i++) {
+            if (_rotates[i]) {
+                return -1;
+            }
+        }
+        return _firstRotating;
+    }
+
+    /** Return the index of C in my alphabet, or -1 if C is to be treated
+     *  as outside it under POLICY.  Throws an exception if POLICY rejects
+     *  C. */
+    int indexOf(char c, CharPolicy policy) {
+        if (policy == CharPolicy.REJECT && c == ' ') {
+            return -1;
+        }
+        int index = _alphabet.indexOf(c);
+        if (index < 0 && policy == CharPolicy.REJECT) {
+            throw error("Character is not in alphabet: %c", c);
+        }
+        return index;
+    }
+
+    /** Return the result of passing P through WIRING with its rotor at
+     *  setting POSN. */
+    private int through(int[] wiring, int posn, int p) {
+        int contact = p + posn;
+        if (contact >= _size) {
+            contact -= _size;
+        }
+        int result = wiring[contact] - posn;
+        return result < 0 ? result + _size : result;
+    }
+
+    /** Advance the rotor settings POSNS by one key press, as Machine
+     *  does before converting a character. */
+    void advance(int[] posns) {
+        int last = _numRotors - 1;
+        for (int i = 0; i < last; i++) {
+            if (_rotates[i] && _rotates[i + 1]
+                && _notches[i + 1][posns[i + 1]]) {
+                posns[i] = next(posns[i]);
+                if (i + 1 < last) {
+                    posns[i + 1] = next(posns[i + 1]);
+                }
+            }
+        }
+        if (_rotates[last]) {
+            posns[last] = next(posns[last]);
+        }
+    }
+
+    /** Return setting POSN advanced by one, wrapping around. */
+    private int next(int posn) {
+        return posn + 1 == _size ? 0 : posn + 1;
+    }
+
+    /** Advance the rotor settings POSNS by PRESSES key presses.  Runs
+     *  whole revolutions of the rightmost rotor through the revolution
+     *  table, so the time taken does not grow with PRESSES. */
+    private void seek(int[] posns, long presses) {
+        if (presses < 0) {
+            throw error("cannot seek to a negative position");
+        }
+        int last = _numRotors - 1;
+        if (_leftStates < 0) {
+            for (long k = 0; k < presses; k++) {
+                advance(posns);
+            }
+            return;
+        }
+        if (_firstRotating == last) {
+            posns[last] = (int) ((posns[last] + presses % _size) % _size);
+            return;
+        }
+        long lead = Math.min(presses, (_size - posns[last]) % _size);
+        for (long k = 0; k < lead; k++) {
+            advance(posns);
+        }
+        long revolutions = (presses - lead) / _size;
+        if (revolutions > 0) {
+            decode(revolve(encode(posns), revolutions), posns);
+        }
+        for (long k = 0, rest = (presses - lead) % _size; k < rest; k++) {
+            advance(posns);
+        }
+    }
+
+    /** Return the code of the rotors left of the rightmost one after
+     *  COUNT revolutions of the rightmost rotor from its 0 setting,
+     *  starting from the rotors encoded by CODE.  The codes visited
+     *  eventually cycle, so COUNT is reduced modulo the cycle length. */
+    private int revolve(int code, long count) {
+        int[] table = revolutionTable();
+        int[] seen = new int[table.length];
+        Arrays.fill(seen, -1);
+        for (int i = 0; i < count; i++) {
+            if (seen[code] >= 0) {
+                long rest = (count - i) % (i - seen[code]);
+                for (long k = 0; k < rest; k++) {
+                    code = table[code];
+                }
+                return code;
+            }
+            seen[code] = i;
+            code = table[code];
+        }
+        return code;
+    }
+
+    /** Return the table giving, for the code of each setting of the
+     *  rotating rotors left of the rightmost one, their code after one
+     *  full revolution of the rightmost rotor starting at its 0 setting.
+     *  Built on first use; threads racing to build it build equal
+     *  tables. */
+    private int[] revolutionTable() {
+        int[] table = _revolutions;
+        if (table == null) {
+            int last = _numRotors - 1;
+            table = new int[_leftStates];
+            int[] posns = new int[_numRotors];
+            for (int code = 0; code < table.length; code++) {
+                decode(code, posns);
+                posns[last] = 0;
+                for (int k = 0; k < _size; k++) {
+                    advance(posns);
+                }
+                table[code] = encode(posns);
+            }
+            _revolutions = table;
+        }
+        return table;
+    }
+
+    /** Return the settings of the rotating rotors left of the rightmost
+     *  one in POSNS, as a number in base alphabet size. */
+    private int encode(int[] posns) {
+        int code = 0;
+        for (int i = _numRotors - 2; i >= _firstRotating; i--) {
+            code = code * _size + posns[i];
+        }
+        return code;
+    }
+
+    /** Set the rotating rotors left of the rightmost one in POSNS to the
+     *  settings encoded in CODE. */
+    private void decode(int code, int[] posns) {
+        for (int i = _firstRotating; i < _numRotors - 1; i++) {
+            posns[i] = code % _size;
+            code /= _size;
+        }
+    }
+
+    /** Return the number of settings of the rotating rotors left of the
+     *  rightmost one, or -1 if the rotating rotors do not form a block at
+     *  the right end or there are too many settings to tabulate. */
+    private int leftStates() {
+        int last = _numRotors - 1;
+        if (firstRotating() < 0) {
+            return -1;
+        }
+        long states = 1;
+        for (int i = _firstRotating; i < last; i++) {
+            states *= _size;
+            if (states * _size > MAX_REVOLUTION_WORK) {
+                return -1;
+            }
+        }
+        return (int) states;
+    }
+
+    /** Return the settings POSNS in the form taken by
+     *  Machine.setRotors. */
+    private String settingString(int[] posns) {
+        StringBuilder result = new StringBuilder(_numRotors - 1);
+        for (int i = 1; i < _numRotors; i++) {
+            result.appendCodePoint(
+                _alphabet.toCodePoint((posns[i] + _rings[i]) % _size));
+        }
+        return result.toString();
+    }
+
+    /** Return a table whose entry at each setting says whether R, with
+     *  ring setting RING, is at a notch there. */
+    private boolean[] notchTable(Rotor r, int ring) {
+        boolean[] table = new boolean[_size];
+        for (char c : r.getNotch()) {
+            table[r.permutation().wrap(_alphabet.toInt(c) - ring)] = true;
+        }
+        return table;
+    }
+
+    /** Largest number of key presses to simulate when building the
+     *  revolution table used by seek. */
+    private static final long MAX_REVOLUTION_WORK = 1 << 25;
+    /** Largest character that fits in one byte. */
+    private static final char MAX_BYTE_CHAR = 0xFF;
+
+    /** Common alphabet of my rotors. */
+    private final Alphabet _alphabet;
+    /** Size of my alphabet. */
+    private final int _size;
+    /** Number of rotor slots. */
+    private final int _numRotors;
+    /** Name of the rotor in each slot. */
+    private final String[] _names;
+    /** Forward wiring of the rotor in each slot at its 0 setting. */
+    private final int[][] _forward;
+    /** Inverse wiring of the rotor in each slot at its 0 setting. */
+    private final int[][] _backward;
+    /** For each slot, whether its rotor is at a notch at each setting. */
+    private final boolean[][] _notches;
+    /** Whether the rotor in each slot rotates. */
+    private final boolean[] _rotates;
+    /** Ring setting of the rotor in each slot. */
+    private final int[] _rings;
+    /** Plugboard. */
+    private final Permutation _plugboardPerm;
+    /** Plugboard wiring. */
+    private final int[] _plugboard;
+    /** The characters of my alphabet, by index, or null if they are not
+     *  all single chars. */
+    private final char[] _chars;
+    /** True iff my alphabet consists of characters below 256. */
+    private final boolean _bytes;
+    /** Leftmost slot of the block of rotating rotors at the right end. */
+    private final int _firstRotating;
+    /** Number of settings of the rotating rotors left of the rightmost,
+     *  or -1 if seek must step one key press at a time. */
+    private final int _leftStates;
+    /** True iff a state fits in a long. */
+    private final boolean _packable;
+    /** The revolution table used by seek, or null if not yet built. */
+    private volatile int[] _revolutions;
+}
@@ -0,0 +1,37 @@
+package com.example.enigmaVisual.model;
+
+/** The changing part of an Enigma machine: the setting of the rotor in
+ *  each slot, as used by a MachineSpec.  A state is just an int[], so
+ *  making one costs next to nothing; a state must not be used by more
+ *  than one thread at a time, but any number of states may share a spec.
+ *  @author Andy Jiang
+ */
+public final class MachineState {
+
+    /** A state whose rotor in slot i is at setting POSITIONS[i].  The
+     *  array is used directly, not copied. */
+    MachineState(int[] positions) {
+        _positions = positions;
+    }
+
+    /** Return an independent copy of me. */
+    public MachineState copy() {
+        return new MachineState(_positions.clone());
+    }
+
+    /** Set my settings to those of OTHER, which must be a state for the
+     *  same spec. */
+    public void copyFrom(MachineState other) {
+        System.arraycopy(other._positions, 0, _positions, 0,
+            _positions.length);
+    }
+
+    /** Return the settings of my rotors, by slot.  This is my own array,
+     *  not a copy. */
+    int[] positions() {
+        return _positions;
+    }
+
+    /** Setting of the rotor in each slot. */
+    private final int[] _positions;
+}
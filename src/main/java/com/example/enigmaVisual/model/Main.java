@@ -1,13 +1,32 @@
 package com.example.enigmaVisual.model;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.example.enigmaVisual.model.EnigmaException.*;
+import static com.example.enigmaVisual.model.MessageBlock.CHARSET;
+import static com.example.enigmaVisual.model.MessageBlock.isAscii;
 
 /** Enigma simulator.
  *  @author Andy Jiang
@@ -22,7 +41,16 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.  The arguments may be preceded by an option
+     *  -jN, which converts sections of the input on N threads at once, or
+     *  -j, which uses one thread per processor.
+     *
+     *  With ARGS of the form -c CONFIG SNAPSHOT, instead writes a binary
+     *  snapshot of the machine described by configuration file CONFIG to
+     *  the file SNAPSHOT.  ARGS[0] names such a snapshot instead of a
+     *  configuration file if it is preceded by the option -s (after any
+     *  -j option); the snapshot is loaded without parsing any rotor
+     *  descriptions. */
     public static void main(String... args) {
         try {
             new Main(args).process();
@@ -68,21 +96,62 @@ public final class Main {
 
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        if (args.length > 0 && args[0].equals("-c")) {
+            if (args.length != 3) {
+                throw error("-c takes a configuration file and a snapshot");
+            }
+            _threads = 1;
+            _config = getInput(args[1]);
+            _snapshotOut = args[2];
+            return;
+        }
+        if (args.length > 0 && args[0].startsWith("-j")) {
+            _threads = threads(args[0].substring(2));
+            args = Arrays.copyOfRange(args, 1, args.length);
+        } else {
+            _threads = 1;
+        }
+        boolean snapshot = args.length > 0 && args[0].equals("-s");
+        if (snapshot) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
-        _config = getInput(args[0]);
+        if (snapshot) {
+            _snapshot = Paths.get(args[0]);
+        } else {
+            _config = getInput(args[0]);
+        }
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = getChannel(args[1]);
         } else {
-            _input = new Scanner(System.in);
+            _input = Channels.newChannel(System.in);
         }
         if (args.length > 2) {
-            _output = getOutput(args[2]);
+            _output = new BufferedOutputStream(getOutput(args[2]),
+                                               BUFFER_SIZE);
         } else {
-            _output = System.out;
+            _output = new BufferedOutputStream(System.out, BUFFER_SIZE);
+        }
+    }
+
+    /** Return the number of threads asked for by COUNT, the text of a -j
+     *  option after the "-j", which is empty for one per processor. */
+    private static int threads(String count) {
+        if (count.isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
         }
+        try {
+            int threads = Integer.parseInt(count);
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through. */
+        }
+        throw error("bad thread count: %s", count);
     }
 
     /** Return a Scanner reading from the file named NAME. */
@@ -94,10 +163,19 @@ public final class Main {
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a channel reading from the file named NAME. */
+    private ReadableByteChannel getChannel(String name) {
         try {
-            return new PrintStream(new File(name));
+            return FileChannel.open(Paths.get(name));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a stream writing to the file named NAME. */
+    private OutputStream getOutput(String name) {
+        try {
+            return new FileOutputStream(new File(name));
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
@@ -105,36 +183,224 @@ public final class Main {
 
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
-    private void process() {
+     *  results to _output.
+     *
+     *  Input is split into lines as raw bytes, a large buffer at a time,
+     *  and message lines are collected into MessageBlocks, which convert
+     *  them without decoding unless they have non-ASCII characters.  A
+     *  line is a setting line if its first token is "*".  A line with no
+     *  tokens is treated as the next line with a token is, or as a
+     *  message if there is none, so that the output is exactly what
+     *  reading the input with a Scanner gives.
+     *
+     *  Each setting line starts a section with a machine of its own, and
+     *  a section is cut into blocks of about BLOCK_SIZE bytes, each
+     *  starting from the machine's settings at the end of the block
+     *  before, found by seeking.  With more than one thread, blocks are
+     *  converted concurrently, and written out in order as they finish;
+     *  at most two blocks per thread are held at once, after which
+     *  reading waits for the oldest to be written. */
+    void process() {
+        if (_snapshotOut != null) {
+            writeSnapshot();
+            return;
+        }
         _machine = readConfig();
-        Machine copy = _machine;
-        String message = "";
+        _ascii = isPrintableAscii(_alphabet);
+        _newline = System.lineSeparator().getBytes(CHARSET);
+        _block = new MessageBlock(null, _ascii, _newline);
+        if (_threads > 1) {
+            _executor = Executors.newFixedThreadPool(_threads, r -> {
+                Thread t = new Thread(r, "enigma-block");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        try {
+            try {
+                readMessages();
+            } finally {
+                if (!_failed) {
+                    submit();
+                    while (!_pending.isEmpty()) {
+                        writeNext();
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw error("could not read input");
+        } finally {
+            if (_executor != null) {
+                _executor.shutdownNow();
+            }
+            try {
+                _output.flush();
+            } catch (IOException excp) {
+                throw error("could not write output");
+            }
+        }
+    }
 
-        if (!_input.hasNextLine()) {
+    /** Read _input, setting up the machine for each setting line and
+     *  adding message lines to blocks. */
+    private void readMessages() throws IOException {
+        LineReader in = new LineReader(_input, BUFFER_SIZE);
+        if (!in.next()) {
             throw new EnigmaException("no input");
-        } else if (!_input.hasNext("\\*")) {
-            throw new EnigmaException("no setting at beginning of input");
         }
-        while (_input.hasNextLine()) {
-            if (_input.hasNext("\\*")) {
-                String s = _input.nextLine();
-                if (s.toCharArray().length > 0) {
-                    _machine = copy;
-                    setUp(_machine, s);
+        boolean started = false;
+        ArrayList<byte[]> blank = new ArrayList<>();
+        do {
+            byte[] buf = in.array();
+            int kind = kind(in);
+            if (kind == BLANK) {
+                if (in.start() == in.end() && blank.isEmpty() && started) {
+                    addMessage(buf, in.start(), in.end());
                 } else {
-                    printMessageLine("\n");
+                    blank.add(Arrays.copyOfRange(buf, in.start(), in.end()));
                 }
-            } else if (_input.hasNext("\\s")) {
-                _input.next();
-            } else if (_input.hasNext("\\n")) {
-                _input.nextLine();
+            } else if (!started && kind != SETTING) {
+                throw new EnigmaException("no setting at beginning of input");
             } else {
-                message += _input.nextLine();
-                printMessageLine(_machine.convert(message));
-                message = "";
+                for (byte[] line : blank) {
+                    if (kind == SETTING) {
+                        setUpLine(new String(line, CHARSET));
+                    } else {
+                        addMessage(line, 0, line.length);
+                    }
+                }
+                blank.clear();
+                if (kind == SETTING) {
+                    setUpLine(decode(in));
+                    started = true;
+                } else {
+                    addMessage(buf, in.start(), in.end());
+                }
             }
+        } while (in.next());
+        if (!started) {
+            throw new EnigmaException("no setting at beginning of input");
+        }
+        for (byte[] line : blank) {
+            addMessage(line, 0, line.length);
+        }
+    }
+
+    /** Return BLANK, SETTING or MESSAGE according to the kind of the
+     *  current line of IN. */
+    private static int kind(LineReader in) {
+        byte[] buf = in.array();
+        int end = in.end();
+        if (!isAscii(buf, in.start(), end)) {
+            return kind(decode(in));
+        }
+        int i = in.start();
+        while (i < end && Character.isWhitespace(buf[i])) {
+            i += 1;
         }
+        if (i == end) {
+            return BLANK;
+        }
+        return buf[i] == '*'
+            && (i + 1 == end || Character.isWhitespace(buf[i + 1]))
+            ? SETTING : MESSAGE;
+    }
+
+    /** Return BLANK, SETTING or MESSAGE according to the kind of
+     *  LINE. */
+    private static int kind(String line) {
+        int i = 0;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i += 1;
+        }
+        if (i == line.length()) {
+            return BLANK;
+        }
+        return line.charAt(i) == '*' && (i + 1 == line.length()
+            || Character.isWhitespace(line.charAt(i + 1)))
+            ? SETTING : MESSAGE;
+    }
+
+    /** Return the current line of IN, decoded. */
+    private static String decode(LineReader in) {
+        return new String(in.array(), in.start(), in.end() - in.start(),
+                          CHARSET);
+    }
+
+    /** Set _machine according to the setting line LINE and start a new
+     *  section converted by a compiled copy of it.  An empty LINE just
+     *  prints an empty line. */
+    private void setUpLine(String line) {
+        if (line.isEmpty()) {
+            _block.add(new byte[0], 0, 0);
+        } else {
+            submit();
+            setUp(_machine, line);
+            _block = new MessageBlock(_machine.compile(), _ascii, _newline);
+        }
+    }
+
+    /** Add the message line BUF[START .. END - 1] to the current block,
+     *  starting a new block if it is full. */
+    private void addMessage(byte[] buf, int start, int end) {
+        _block.add(buf, start, end);
+        if (_block.size() >= BLOCK_SIZE) {
+            CompiledMachine next = _block.machine().copy();
+            next.seek(_block.letters());
+            submit();
+            _block = new MessageBlock(next, _ascii, _newline);
+        }
+    }
+
+    /** Hand the current block, if it is not empty, to be converted and
+     *  written out, waiting for older blocks to be written if too many
+     *  are pending.  Leaves the current block to be replaced. */
+    private void submit() {
+        if (_block.size() == 0) {
+            return;
+        }
+        if (_executor == null) {
+            write(_block.call());
+        } else {
+            _pending.add(_executor.submit(_block));
+            while (_pending.size() > 2 * _threads) {
+                writeNext();
+            }
+        }
+        _block = new MessageBlock(null, _ascii, _newline);
+    }
+
+    /** Wait for the oldest pending block and write it out. */
+    private void writeNext() {
+        try {
+            write(_pending.remove().get());
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("interrupted");
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        }
+    }
+
+    /** Write out BLOCK, noting if it failed, so that nothing after it is
+     *  written. */
+    private void write(MessageBlock block) {
+        _failed = true;
+        block.writeTo(_output);
+        _failed = false;
+    }
+
+    /** Return true iff every character of ALPHABET is a printable ASCII
+     *  character other than space, so that converted ASCII text needs
+     *  neither encoding nor trimming. */
+    private static boolean isPrintableAscii(Alphabet alphabet) {
+        for (int i = 0; i < alphabet.size(); i++) {
+            int c = alphabet.toCodePoint(i);
+            if (c <= ' ' || c >= 0x7F) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -172,9 +438,34 @@ public final class Main {
             throw new EnigmaException("config file has no pawl number");
         }
     }
+    /** Write a snapshot of the machine described by _config to the file
+     *  named _snapshotOut. */
+    private void writeSnapshot() {
+        Machine machine = readConfig();
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(getOutput(_snapshotOut)))) {
+            machine.write(out);
+        } catch (IOException excp) {
+            throw error("could not write %s", _snapshotOut);
+        }
+    }
+
     /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
+     *  file _config, or read from the snapshot _snapshot. */
+    Machine readConfig() {
+        if (_snapshot != null) {
+            try (DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(
+                         Files.newInputStream(_snapshot)))) {
+                Machine machine = Machine.read(in);
+                _alphabet = machine.alphabet();
+                _rotornum = machine.numRotors();
+                _pawlnum = machine.numPawls();
+                return machine;
+            } catch (IOException excp) {
+                throw error("bad configuration snapshot %s", _snapshot);
+            }
+        }
         try {
             readConfigAlpha();
             readConfigRotorNum();
@@ -220,41 +511,53 @@ public final class Main {
         }
     }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        String result = "";
-        char[] split = msg.toCharArray();
-        int shift = 0;
-        while (shift < msg.length()) {
-            for (int i = 0; i < 5; i++) {
-                if (shift + i < msg.length()) {
-                    result += split[shift + i];
-                }
-            }
-            result += " ";
-            shift += 5;
-        }
-
-        _output.println(result.trim());
-    }
-
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
 
     /** Source of input messages. */
-    private Scanner _input;
+    private ReadableByteChannel _input;
 
-    /** Source of machine configuration. */
+    /** Source of machine configuration, or null if it is _snapshot. */
     private Scanner _config;
+    /** Snapshot of the machine, or null if it is described by _config. */
+    private Path _snapshot;
+    /** File to write a snapshot of the machine to, or null if messages
+     *  are to be converted instead. */
+    private String _snapshotOut;
 
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private OutputStream _output;
 
     /** Machine. */
     private Machine _machine;
+    /** True iff _alphabet is all printable ASCII. */
+    private boolean _ascii;
+    /** Line separator, encoded. */
+    private byte[] _newline;
+    /** Block collecting message lines. */
+    private MessageBlock _block;
+    /** Number of threads converting blocks. */
+    private final int _threads;
+    /** Converts blocks when _threads > 1, else null. */
+    private ExecutorService _executor;
+    /** True iff writing out a block has failed. */
+    private boolean _failed;
+    /** Blocks being converted, oldest first. */
+    private final ArrayDeque<Future<MessageBlock>> _pending =
+        new ArrayDeque<>();
     /** Number of rotors. */
     private int _rotornum;
     /** Number of pawls. */
     private int _pawlnum;
+
+    /** Bytes read or written at a time. */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Bytes of input per block. */
+    private static final int BLOCK_SIZE = 1 << 18;
+    /** Kind of a line with no tokens. */
+    private static final int BLANK = 0;
+    /** Kind of a line whose first token is "*". */
+    private static final int SETTING = 1;
+    /** Kind of any other line. */
+    private static final int MESSAGE = 2;
 }
@@ -0,0 +1,225 @@
+package com.example.enigmaVisual.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** A run of consecutive message lines from one section of Main's input,
+ *  with the machine that converts them, which can be converted on any
+ *  thread and written out later.  Lines are held as raw bytes.  Lines of
+ *  ASCII characters are converted in place without being decoded, and
+ *  the others are decoded and converted as Strings; either way, they are
+ *  laid out in the output by a GroupWriter.  An
+ *  error in converting a line ends the block, keeping the output of the
+ *  lines before it, and is thrown when the block is written out.
+ *  @author Andy Jiang
+ */
+final class MessageBlock implements Callable<MessageBlock> {
+
+    /** An empty block whose lines are converted by MACHINE, which may be
+     *  null if there will only be empty lines, and whose output lines end
+     *  with NEWLINE.  ASCII is true iff MACHINE's alphabet is all
+     *  printable ASCII. */
+    MessageBlock(CompiledMachine machine, boolean ascii, byte[] newline) {
+        _machine = machine;
+        _ascii = ascii;
+        _newline = newline;
+        _lines = new byte[INITIAL_SIZE];
+    }
+
+    /** Add BUF[START .. END - 1], a line with no terminator, to me. */
+    void add(byte[] buf, int start, int end) {
+        int len = end - start;
+        if (_lines.length - _size < len + 1) {
+            _lines = Arrays.copyOf(_lines,
+                                   Math.max(_size + len + 1,
+                                            2 * _lines.length));
+        }
+        System.arraycopy(buf, start, _lines, _size, len);
+        _size += len;
+        _lines[_size++] = '\n';
+        if (isAscii(buf, start, end)) {
+            for (int i = start; i < end; i++) {
+                _letters += buf[i] == ' ' ? 0 : 1;
+            }
+        } else {
+            _letters += new String(buf, start, len, CHARSET).codePoints()
+                .filter(c -> c != ' ').count();
+        }
+    }
+
+    /** Return the number of bytes of input I hold. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the number of characters my lines will convert, if they
+     *  are all in the machine's alphabet. */
+    long letters() {
+        return _letters;
+    }
+
+    /** Return the machine converting my lines. */
+    CompiledMachine machine() {
+        return _machine;
+    }
+
+    /** Convert my lines, leaving the results and any error to be written
+     *  out by writeTo.  Returns me. */
+    @Override
+    public MessageBlock call() {
+        _out = new byte[_size + _size / GROUP + INITIAL_SIZE];
+        try {
+            int start = 0;
+            for (int i = 0; i < _size; i++) {
+                if (_lines[i] == '\n') {
+                    convertLine(start, i);
+                    start = i + 1;
+                }
+            }
+        } catch (RuntimeException excp) {
+            _error = excp;
+        } catch (IOException excp) {
+            _error = error("could not write output");
+        }
+        _lines = null;
+        return this;
+    }
+
+    /** Write my converted lines to OUTPUT, then throw the error that
+     *  stopped their conversion, if any. */
+    void writeTo(OutputStream output) {
+        try {
+            output.write(_out, 0, _outLen);
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+        if (_error != null) {
+            throw _error;
+        }
+    }
+
+    /** Convert _lines[START .. END - 1] and append it to _out in groups
+     *  of five.  Lines of ASCII characters are converted in place in
+     *  _lines and written to _out as bytes, and the others are written
+     *  as text. */
+    private void convertLine(int start, int end) throws IOException {
+        int len = end - start;
+        if (len > 0 && (!_ascii || !isAscii(_lines, start, end))) {
+            appendGroups(_machine.convert(new String(_lines, start, len,
+                                                     CHARSET)));
+            return;
+        }
+        if (_bytes == null) {
+            _bytes = new GroupWriter(new Sink(), GROUP, 0,
+                                     new String(_newline, CHARSET));
+        }
+        int n = len == 0 ? 0 : _machine.convert(_lines, start, len, _lines,
+                                                start, CharPolicy.REJECT);
+        reserve(n + n / GROUP + _newline.length);
+        _bytes.write(_lines, start, n);
+        _bytes.newLine();
+    }
+
+    /** Append MSG to _out in groups of five (except that the last group
+     *  may have fewer letters), followed by a newline. */
+    private void appendGroups(String msg) throws IOException {
+        if (_text == null) {
+            _text = new GroupWriter(new OutputStreamWriter(new Sink(),
+                                                           CHARSET));
+        }
+        _text.write(msg);
+        _text.newLine();
+        _text.flush();
+    }
+
+    /** Make room for at least N more bytes in _out. */
+    private void reserve(int n) {
+        if (_out.length - _outLen < n) {
+            _out = Arrays.copyOf(_out, Math.max(_outLen + n,
+                                                2 * _out.length));
+        }
+    }
+
+    /** Return true iff BUF[START .. END - 1] is all ASCII. */
+    static boolean isAscii(byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buf[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Letters per group of output. */
+    static final int GROUP = GroupWriter.DEFAULT_GROUP_SIZE;
+    /** Encoding of input and output. */
+    static final Charset CHARSET = Charset.defaultCharset();
+    /** Bytes first allocated for lines. */
+    private static final int INITIAL_SIZE = 256;
+
+    /** Appends what is written to it to _out.  Characters appended to it
+     *  are written as single bytes, and must be below 256. */
+    private final class Sink extends OutputStream implements Appendable {
+        @Override
+        public void write(int b) {
+            reserve(1);
+            _out[_outLen++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            reserve(len);
+            System.arraycopy(b, off, _out, _outLen, len);
+            _outLen += len;
+        }
+
+        @Override
+        public Sink append(char c) {
+            write(c);
+            return this;
+        }
+
+        @Override
+        public Sink append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Sink append(CharSequence csq, int start, int end) {
+            reserve(end - start);
+            for (int i = start; i < end; i++) {
+                _out[_outLen++] = (byte) csq.charAt(i);
+            }
+            return this;
+        }
+    }
+
+    /** Machine converting my lines. */
+    private final CompiledMachine _machine;
+    /** True iff my machine's alphabet is all printable ASCII. */
+    private final boolean _ascii;
+    /** Line separator, encoded. */
+    private final byte[] _newline;
+    /** My lines, each followed by '\n'. */
+    private byte[] _lines;
+    /** Number of bytes in _lines. */
+    private int _size;
+    /** Number of characters my lines convert. */
+    private long _letters;
+    /** Converted lines. */
+    private byte[] _out;
+    /** Number of bytes in _out. */
+    private int _outLen;
+    /** Formats lines that are converted in place, or null. */
+    private GroupWriter _bytes;
+    /** Formats lines that are not converted in place, or null. */
+    private GroupWriter _text;
+    /** Error that stopped conversion, or null. */
+    private RuntimeException _error;
+}
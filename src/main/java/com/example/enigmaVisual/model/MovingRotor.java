@@ -26,17 +26,6 @@ class MovingRotor extends Rotor {
         return true;
     }
 
-    @Override
-    void ringSet(int posn) {
-        super.ringSet(posn);
-        _ringSet = permutation().wrap(posn);
-    }
-    @Override
-    void ringSet(char cposn) {
-        super.ringSet(cposn);
-        _ringSet = permutation().wrap(alphabet().toInt(cposn));
-    }
-
     @Override
     void advance() {
         if (setting() < alphabet().size() - 1) {
@@ -49,7 +38,7 @@ class MovingRotor extends Rotor {
     @Override
     boolean atNotch() {
         for (char c : _notches) {
-            int set = permutation().wrap(alphabet().toInt(c) - _ringSet);
+            int set = permutation().wrap(alphabet().toInt(c) - ringSetting());
             if (set == setting()) {
                 return true;
             }
@@ -68,7 +57,4 @@ class MovingRotor extends Rotor {
     private boolean _advanceable;
     /** Notches.*/
     private char[] _notches;
-
-    /**ringSet.*/
-    private int _ringSet = 0;
 }
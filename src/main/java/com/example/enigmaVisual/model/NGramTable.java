@@ -0,0 +1,290 @@
+package com.example.enigmaVisual.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** Log-probabilities of the n-grams (runs of N letters) of a language,
+ *  over the indices of an alphabet, for scoring trial decryptions.  An
+ *  n-gram's entry is found at the index formed by reading its letters as
+ *  the digits of a number in base alphabet size, first letter most
+ *  significant.
+ *
+ *  A table trained from a corpus can be written to a file and later
+ *  mapped into memory rather than read, so that a large table (26^4
+ *  quadgrams or more) costs no parsing and no heap, and every thread
+ *  shares the same pages.  The file holds, all little-endian: the int
+ *  MAGIC, the format version, the order, the alphabet size and the code
+ *  point of each alphabet symbol, followed by one float per n-gram.
+ *  @author Andy Jiang
+ */
+public final class NGramTable {
+
+    /** A table of n-grams of length ORDER over an alphabet of SIZE
+     *  letters, whose entries are LOGPROBS. */
+    NGramTable(int order, int size, FloatBuffer logProbs) {
+        long entries = entries(order, size);
+        if (entries != logProbs.limit()) {
+            throw error("n-gram table has wrong size");
+        }
+        _order = order;
+        _size = size;
+        _logProbs = logProbs;
+    }
+
+    /** Return the table of n-grams of length ORDER over ALPHABET counted
+     *  in CORPUS, ignoring characters outside ALPHABET (which also break
+     *  up n-grams).  N-grams that never occur get a floor well below the
+     *  rarest one that does. */
+    public static NGramTable train(Alphabet alphabet, int order,
+                                   CharSequence corpus) {
+        Counter counter = new Counter(alphabet, order);
+        for (int i = 0; i < corpus.length(); i++) {
+            counter.add(corpus.charAt(i));
+        }
+        return counter.table();
+    }
+
+    /** Return the table of n-grams of length ORDER over ALPHABET counted
+     *  in the UTF-8 text file CORPUS, as for train(ALPHABET, ORDER,
+     *  CharSequence), reading the file a buffer at a time. */
+    public static NGramTable train(Alphabet alphabet, int order,
+                                   Path corpus) {
+        Counter counter = new Counter(alphabet, order);
+        char[] buf = new char[READ_BUFFER];
+        try (Reader in = Files.newBufferedReader(corpus,
+                                                 StandardCharsets.UTF_8)) {
+            for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                for (int i = 0; i < n; i++) {
+                    counter.add(buf[i]);
+                }
+            }
+        } catch (IOException excp) {
+            throw error("could not read %s", corpus);
+        }
+        return counter.table();
+    }
+
+    /** Return the table in FILE, written by write, mapped into memory.
+     *  Its alphabet must be ALPHABET. */
+    public static NGramTable map(Alphabet alphabet, Path file) {
+        try (FileChannel channel = FileChannel.open(file,
+                 StandardOpenOption.READ)) {
+            int size = alphabet.size();
+            long headerBytes = (long) (HEADER_INTS + size) * Integer.BYTES;
+            if (channel.size() < headerBytes) {
+                throw error("%s is not an n-gram table", file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+                0, headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC
+                || header.getInt(Integer.BYTES) != VERSION) {
+                throw error("%s is not an n-gram table", file);
+            }
+            int order = header.getInt(2 * Integer.BYTES);
+            if (header.getInt(3 * Integer.BYTES) != size) {
+                throw error("%s is for another alphabet", file);
+            }
+            for (int i = 0; i < size; i++) {
+                int cp = header.getInt((HEADER_INTS + i) * Integer.BYTES);
+                if (cp != alphabet.toCodePoint(i)) {
+                    throw error("%s is for another alphabet", file);
+                }
+            }
+            long entries = entries(order, size);
+            if (channel.size() != headerBytes + entries * Float.BYTES) {
+                throw error("%s is truncated", file);
+            }
+            FloatBuffer logProbs = channel.map(FileChannel.MapMode.READ_ONLY,
+                headerBytes, entries * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            return new NGramTable(order, size, logProbs);
+        } catch (IOException excp) {
+            throw error("could not open %s", file);
+        }
+    }
+
+    /** Write me to FILE, in the form read by map, with ALPHABET, which
+     *  must be my alphabet. */
+    public void write(Alphabet alphabet, Path file) {
+        if (alphabet.size() != _size) {
+            throw error("n-gram table does not fit the alphabet");
+        }
+        ByteBuffer buf = ByteBuffer.allocate(WRITE_BUFFER)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file,
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            buf.putInt(MAGIC).putInt(VERSION).putInt(_order).putInt(_size);
+            for (int i = 0; i < _size; i++) {
+                flushIfFull(channel, buf, Integer.BYTES);
+                buf.putInt(alphabet.toCodePoint(i));
+            }
+            for (int i = 0; i < _logProbs.limit(); i++) {
+                flushIfFull(channel, buf, Float.BYTES);
+                buf.putFloat(_logProbs.get(i));
+            }
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        } catch (IOException excp) {
+            throw error("could not write %s", file);
+        }
+    }
+
+    /** Write out the contents of BUF to CHANNEL if it has fewer than
+     *  NEEDED bytes left. */
+    private static void flushIfFull(FileChannel channel, ByteBuffer buf,
+                                    int needed) throws IOException {
+        if (buf.remaining() < needed) {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+    }
+
+    /** Return the number of n-grams of length ORDER over an alphabet of
+     *  SIZE letters, checking that a table of them is allowed. */
+    private static long entries(int order, int size) {
+        if (order < 1 || order > MAX_ORDER) {
+            throw error("n-gram order must be between 1 and %d", MAX_ORDER);
+        }
+        long entries = 1;
+        for (int i = 0; i < order; i++) {
+            entries *= size;
+            if (entries > MAX_ENTRIES) {
+                throw error("n-gram table too large");
+            }
+        }
+        return entries;
+    }
+
+    /** Return the length of my n-grams. */
+    public int order() {
+        return _order;
+    }
+
+    /** Return the size of my alphabet. */
+    public int size() {
+        return _size;
+    }
+
+    /** Return the log-probability of the n-gram numbered INDEX. */
+    float logProb(int index) {
+        return _logProbs.get(index);
+    }
+
+    /** Return the sum of the log-probabilities of the n-grams in the LEN
+     *  letter indices of TEXT starting at OFF. */
+    public double score(int[] text, int off, int len) {
+        double total = 0;
+        for (int i = off; i + _order <= off + len; i++) {
+            total += logProb(index(text, i));
+        }
+        return total;
+    }
+
+    /** Return the number of the n-gram starting at position I of
+     *  TEXT. */
+    int index(int[] text, int i) {
+        int index = 0;
+        for (int k = i; k < i + _order; k++) {
+            index = index * _size + text[k];
+        }
+        return index;
+    }
+
+    /** Longest n-gram handled. */
+    static final int MAX_ORDER = 5;
+    /** Most entries in a table. */
+    private static final long MAX_ENTRIES = Integer.MAX_VALUE / Float.BYTES;
+    /** Pseudo-count given to n-grams never seen in training. */
+    private static final double FLOOR = 0.01;
+    /** Marks the start of a table file. */
+    private static final int MAGIC = 0x4D52474E;
+    /** Version of the file format. */
+    private static final int VERSION = 1;
+    /** Ints in the file header before the alphabet. */
+    private static final int HEADER_INTS = 4;
+    /** Chars read from a corpus at a time. */
+    private static final int READ_BUFFER = 1 << 16;
+    /** Bytes written to a table file at a time. */
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    /** Counts the n-grams of a corpus fed to it a character at a time. */
+    private static final class Counter {
+
+        /** A counter of n-grams of length ORDER over ALPHABET. */
+        Counter(Alphabet alphabet, int order) {
+            _alphabet = alphabet;
+            _order = order;
+            _counts = new long[(int) entries(order, alphabet.size())];
+            _modulus = _counts.length / alphabet.size();
+        }
+
+        /** Count the n-gram, if any, ending with C. */
+        void add(char c) {
+            int index = _alphabet.indexOf(c);
+            if (index < 0) {
+                _run = 0;
+                return;
+            }
+            _index = (_index % _modulus) * _alphabet.size() + index;
+            _run += 1;
+            if (_run >= _order) {
+                _counts[_index] += 1;
+                _total += 1;
+            }
+        }
+
+        /** Return the table of log-probabilities of what I have
+         *  counted. */
+        NGramTable table() {
+            if (_total == 0) {
+                throw error("corpus has no n-grams");
+            }
+            float[] logProbs = new float[_counts.length];
+            float floor = (float) Math.log(FLOOR / _total);
+            for (int i = 0; i < _counts.length; i++) {
+                logProbs[i] = _counts[i] == 0 ? floor
+                    : (float) Math.log((double) _counts[i] / _total);
+            }
+            return new NGramTable(_order, _alphabet.size(),
+                                  FloatBuffer.wrap(logProbs));
+        }
+
+        /** Alphabet counted. */
+        private final Alphabet _alphabet;
+        /** Length of n-grams. */
+        private final int _order;
+        /** Count of each n-gram. */
+        private final long[] _counts;
+        /** Number of n-grams one letter shorter. */
+        private final int _modulus;
+        /** Number of the latest n-gram. */
+        private int _index;
+        /** Length of the current run of letters. */
+        private int _run;
+        /** Total n-grams counted. */
+        private long _total;
+    }
+
+    /** Length of my n-grams. */
+    private final int _order;
+    /** Size of my alphabet. */
+    private final int _size;
+    /** Log-probability of each n-gram, on or off the heap. */
+    private final FloatBuffer _logProbs;
+}
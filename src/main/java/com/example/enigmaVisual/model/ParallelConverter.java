@@ -0,0 +1,138 @@
+package com.example.enigmaVisual.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** Converts long messages by cutting them into chunks that are converted
+ *  concurrently on a ForkJoinPool.  Each chunk gets its own copy of the
+ *  machine, sought directly to the keystream position at which the chunk
+ *  starts, so the result is exactly what converting the whole message on
+ *  one machine would give.
+ *  @author Andy Jiang
+ */
+public final class ParallelConverter {
+
+    /** A converter running on POOL that hands out chunks of CHUNKSIZE
+     *  characters. */
+    public ParallelConverter(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw error("chunk size must be positive: %d", chunkSize);
+        }
+        _pool = pool;
+        _chunkSize = chunkSize;
+    }
+
+    /** A converter running on the common pool with the default chunk
+     *  size. */
+    public ParallelConverter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /** Returns the encoding/decoding of MSG by M, exactly as
+     *  M.convert(MSG) would, updating the state of M's rotors
+     *  accordingly. */
+    public String convert(Machine m, String msg) {
+        CompiledMachine compiled = m.compile();
+        String result = convert(compiled, msg);
+        compiled.copySettingsTo(m.usedRotors());
+        return result;
+    }
+
+    /** Returns the encoding/decoding of MSG by M, exactly as
+     *  M.convert(MSG) would, updating M's settings accordingly. */
+    public String convert(CompiledMachine m, String msg) {
+        char[] src = msg.toCharArray();
+        char[] dst = new char[src.length];
+        int len = convert(m, src, 0, src.length, dst, 0, CharPolicy.REJECT);
+        return new String(dst, 0, len);
+    }
+
+    /** Convert the LEN characters of SRC starting at OFF into DST starting
+     *  at DSTOFF with M, exactly as M.convert would with the same
+     *  arguments, treating characters outside M's alphabet according to
+     *  POLICY and updating M's settings accordingly.  Returns the number
+     *  of characters written.  Unlike M.convert, the source and
+     *  destination ranges must not overlap.  If POLICY rejects any
+     *  character, nothing is converted and M is unchanged. */
+    public int convert(CompiledMachine m, char[] src, int off, int len,
+                       char[] dst, int dstOff, CharPolicy policy) {
+        int chunks = (len + _chunkSize - 1) / _chunkSize;
+        if (chunks <= 1) {
+            return m.convert(src, off, len, dst, dstOff, policy);
+        }
+        long[] presses = new long[chunks + 1];
+        int[] written = new int[chunks + 1];
+        _pool.invoke(new ChunkTask(0, chunks, c -> {
+            int start = off + c * _chunkSize;
+            int end = Math.min(off + len, start + _chunkSize);
+            int count = m.countConverted(src, start, end - start, policy);
+            presses[c + 1] = count;
+            written[c + 1] = policy == CharPolicy.PASS ? end - start : count;
+        }));
+        for (int c = 0; c < chunks; c++) {
+            presses[c + 1] += presses[c];
+            written[c + 1] += written[c];
+        }
+
+        CompiledMachine start = m.copy();
+        _pool.invoke(new ChunkTask(0, chunks, c -> {
+            int from = off + c * _chunkSize;
+            int to = Math.min(off + len, from + _chunkSize);
+            CompiledMachine worker = start.copy();
+            worker.seek(presses[c]);
+            worker.convert(src, from, to - from, dst, dstOff + written[c],
+                policy);
+        }));
+        m.seek(presses[chunks]);
+        return written[chunks];
+    }
+
+    /** Return the number of characters in each chunk. */
+    public int chunkSize() {
+        return _chunkSize;
+    }
+
+    /** A task that applies a body to each chunk number in a range,
+     *  splitting the range in half until single chunks remain. */
+    private static final class ChunkTask extends RecursiveAction {
+
+        /** A task applying BODY to the chunks numbered LO <= c < HI. */
+        ChunkTask(int lo, int hi, IntConsumer body) {
+            _lo = lo;
+            _hi = hi;
+            _body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo == 1) {
+                _body.accept(_lo);
+            } else {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new ChunkTask(_lo, mid, _body),
+                    new ChunkTask(mid, _hi, _body));
+            }
+        }
+
+        /** Version of my serialized form, which RecursiveAction has. */
+        private static final long serialVersionUID = 1L;
+
+        /** First chunk number. */
+        private final int _lo;
+        /** One past the last chunk number. */
+        private final int _hi;
+        /** What to do with each chunk. */
+        private final IntConsumer _body;
+    }
+
+    /** Default number of characters in a chunk. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    /** Pool on which chunks are converted. */
+    private final ForkJoinPool _pool;
+    /** Number of characters in each chunk. */
+    private final int _chunkSize;
+}
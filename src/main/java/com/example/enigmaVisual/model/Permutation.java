@@ -1,5 +1,9 @@
 package com.example.enigmaVisual.model;
-import java.util.HashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
 
 /** Represents a permutation of a range of integers starting at 0 corresponding
  *  to the characters of an alphabet.
@@ -14,48 +18,73 @@ class Permutation {
      *  Whitespace is ignored. */
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
-        String lc = alphabet.toString();
-        String oneCycle = "";
-        for (char c : cycles.toCharArray()) {
-            if (c == ')') {
-                addCycle(oneCycle);
-            } else if (c == '(') {
-                oneCycle = "";
+        int size = alphabet.size();
+        _forward = new int[size];
+        _inverse = new int[size];
+        boolean[] used = new boolean[size];
+        boolean open = false;
+        int first = -1;
+        int prev = -1;
+        for (int i = 0; i < cycles.length(); ) {
+            int c = cycles.codePointAt(i);
+            i += Character.charCount(c);
+            if (c == '(' && !open) {
+                open = true;
+                first = prev = -1;
+            } else if (c == ')' && open) {
+                if (first >= 0) {
+                    link(prev, first);
+                }
+                open = false;
             } else if (c != ' ') {
-                if (_alphabet.contains(c)) {
-                    if (lc.indexOf(c) >= 0) {
-                        oneCycle += c;
-                        String first = lc.substring(0, lc.indexOf(c));
-                        lc = first + lc.substring(lc.indexOf(c) + 1);
-                    } else {
-                        throw new EnigmaException("Cycle is not in alphabet");
-                    }
-                } else {
+                int index = _alphabet.indexOf(c);
+                if (!open) {
+                    throw error("malformed cycles: %s", cycles);
+                } else if (index < 0 || used[index]) {
                     throw new EnigmaException("Cycle is not in alphabet");
                 }
+                used[index] = true;
+                if (first < 0) {
+                    first = index;
+                } else {
+                    link(prev, index);
+                }
+                prev = index;
             }
         }
-
-        for (char c : lc.toCharArray()) {
-            addCycle("" + c);
+        if (open) {
+            throw error("malformed cycles: %s", cycles);
+        }
+        for (int i = 0; i < size; i++) {
+            if (!used[i]) {
+                link(i, i);
+            }
         }
     }
 
-    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
-        char[] cycleArr = cycle.toCharArray();
-        for (int i = 0; i < cycleArr.length - 1; i++) {
-            if (_cycles.containsKey(cycleArr[i])) {
-                throw new EnigmaException("Duplicate key");
-            } else {
-                _cycles.put(cycleArr[i], cycleArr[i + 1]);
-                _inversecycles.put(cycleArr[i + 1], cycleArr[i]);
+    /** A permutation of the indices of ALPHABET taking each index i to
+     *  FORWARD[i].  FORWARD must contain each index exactly once. */
+    Permutation(int[] forward, Alphabet alphabet) {
+        if (forward.length != alphabet.size()) {
+            throw error("permutation table has wrong size");
+        }
+        _alphabet = alphabet;
+        _forward = forward.clone();
+        _inverse = new int[forward.length];
+        Arrays.fill(_inverse, -1);
+        for (int i = 0; i < forward.length; i++) {
+            int image = forward[i];
+            if (image < 0 || image >= forward.length || _inverse[image] >= 0) {
+                throw error("permutation table is not a permutation");
             }
+            _inverse[image] = i;
         }
+    }
 
-        _cycles.put(cycleArr[cycleArr.length - 1], cycleArr[0]);
-        _inversecycles.put(cycleArr[0], cycleArr[cycleArr.length - 1]);
+    /** Make FROM map to TO. */
+    private void link(int from, int to) {
+        _forward[from] = to;
+        _inverse[to] = from;
     }
 
     /** Return the value of P modulo the size of this permutation. */
@@ -69,28 +98,27 @@ class Permutation {
 
     /** Returns the size of the alphabet I permute. */
     int size() {
-        return _alphabet.size();
+        return _forward.length;
     }
 
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        char letter = permute(_alphabet.toChar(p % size()));
-        return _alphabet.toInt(letter);
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        char letter = invert(_alphabet.toChar(c % size()));
-        return _alphabet.toInt(letter);
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        if (_alphabet.contains(p)) {
-            return _cycles.get(p);
+        int index = _alphabet.indexOf(p);
+        if (index >= 0) {
+            return _alphabet.toChar(_forward[index]);
         } else {
             throw new EnigmaException("Permuting character not in Alphabet");
         }
@@ -98,8 +126,9 @@ class Permutation {
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        if (_alphabet.contains(c)) {
-            return _inversecycles.get(c);
+        int index = _alphabet.indexOf(c);
+        if (index >= 0) {
+            return _alphabet.toChar(_inverse[index]);
         } else {
             throw new EnigmaException("Inverting character not in Alphabet");
         }
@@ -114,19 +143,122 @@ class Permutation {
      *  permutation for which no value maps to itself). */
     boolean derangement() {
         for (int i = 0; i < size(); i++) {
-            if (i == permute(i)) {
+            if (i == _forward[i]) {
                 return false;
             }
         }
         return true;
     }
 
+    /** Return a new array holding the image of each index under me. */
+    int[] toArray() {
+        return _forward.clone();
+    }
+
+    /** Return the permutation that applies me and then OTHER, which must
+     *  have the same size. */
+    Permutation compose(Permutation other) {
+        if (other.size() != size()) {
+            throw error("composing permutations of different sizes");
+        }
+        int[] result = new int[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = other._forward[_forward[i]];
+        }
+        return new Permutation(result, _alphabet);
+    }
+
+    /** Return my inverse. */
+    Permutation inverse() {
+        return new Permutation(_inverse, _alphabet);
+    }
+
+    /** Return me applied K times (my inverse applied -K times if K is
+     *  negative). */
+    Permutation power(int k) {
+        int[] result = new int[size()];
+        for (int[] cycle : cycles()) {
+            int steps = k % cycle.length;
+            if (steps < 0) {
+                steps += cycle.length;
+            }
+            for (int j = 0; j < cycle.length; j++) {
+                result[cycle[j]] = cycle[(j + steps) % cycle.length];
+            }
+        }
+        return new Permutation(result, _alphabet);
+    }
+
+    /** Return me conjugated by a rotation of SHIFT places: the permutation
+     *  taking P to my image of P + SHIFT, less SHIFT.  This is what a rotor
+     *  wired as me does at setting SHIFT. */
+    Permutation conjugate(int shift) {
+        int[] result = new int[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = wrap(_forward[wrap(i + shift)] - shift);
+        }
+        return new Permutation(result, _alphabet);
+    }
+
+    /** Return my cycles, including those of length 1.  Each cycle starts
+     *  with its smallest index, and the cycles are in order of those
+     *  indices. */
+    int[][] cycles() {
+        boolean[] seen = new boolean[size()];
+        ArrayList<int[]> result = new ArrayList<>();
+        int[] buf = new int[size()];
+        for (int start = 0; start < size(); start++) {
+            if (!seen[start]) {
+                int len = 0;
+                for (int i = start; !seen[i]; i = _forward[i]) {
+                    seen[i] = true;
+                    buf[len++] = i;
+                }
+                result.add(Arrays.copyOf(buf, len));
+            }
+        }
+        return result.toArray(new int[0][]);
+    }
+
+    /** Return the lengths of my cycles, longest first. */
+    int[] cycleType() {
+        int[][] cycles = cycles();
+        int[] result = new int[cycles.length];
+        for (int i = 0; i < cycles.length; i++) {
+            result[i] = -cycles[i].length;
+        }
+        Arrays.sort(result);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = -result[i];
+        }
+        return result;
+    }
+
+    /** Return me in cycle notation, leaving out cycles of length 1, in the
+     *  order given by cycles().  Equal permutations give equal strings. */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int[] cycle : cycles()) {
+            if (cycle.length > 1) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append('(');
+                for (int i : cycle) {
+                    result.appendCodePoint(_alphabet.toCodePoint(i));
+                }
+                result.append(')');
+            }
+        }
+        return result.toString();
+    }
 
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
-    /** Hashmap to represent cycle matching. */
-    private HashMap<Character, Character> _cycles = new HashMap<>();
-    /** Hashmap to represent inverse cycle matching. */
-    private HashMap<Character, Character> _inversecycles = new HashMap<>();
+    /** The image of each index. */
+    private final int[] _forward;
+    /** The preimage of each index. */
+    private final int[] _inverse;
 
 }
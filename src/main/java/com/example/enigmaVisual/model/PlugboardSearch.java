@@ -0,0 +1,502 @@
+package com.example.enigmaVisual.model;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** A ciphertext-only attack on the plugboard.  With the rotor order, ring
+ *  setting and starting rotor settings known (from a bombe run, say), it
+ *  searches for the plugboard whose decryption looks most like language:
+ *  first by index of coincidence, which needs no language model, and then,
+ *  if an NGramTable is given, by the total log-probability of the
+ *  decryption's n-grams.
+ *
+ *  Each climb starts from a random plugboard and repeatedly tries every
+ *  pair of letters: plugging them together (unplugging their partners)
+ *  or, if already plugged together, unplugging them.  A change is kept if
+ *  it raises the score or, while annealing, with probability
+ *  exp(change / temperature).  The plugboard is a bare involution array,
+ *  and the rotors' part of the machine at each position is tabulated once,
+ *  so a trial change re-deciphers only the positions whose input or
+ *  output letter it touches and rescores only the n-grams covering them.
+ *  Independent climbs run concurrently on a ForkJoinPool, and only the
+ *  best climb so far is kept, so memory does not grow with the number of
+ *  restarts.
+ *  @author Andy Jiang
+ */
+public final class PlugboardSearch {
+
+    /** A search on POOL for machines built from SPECS. */
+    public PlugboardSearch(ForkJoinPool pool, SpecCache specs) {
+        _pool = pool;
+        _specs = specs;
+    }
+
+    /** A search on the common pool for machines built from SPECS. */
+    public PlugboardSearch(SpecCache specs) {
+        this(ForkJoinPool.commonPool(), specs);
+    }
+
+    /** Search for the plugboard of at most MAXPAIRS pairs that best
+     *  deciphers CIPHERTEXT (spaces ignored) on rotors ROTORS with ring
+     *  setting RINGS (null meaning all at 0) starting at SETTING, scoring
+     *  by TABLE after a first climb on index of coincidence (by index of
+     *  coincidence alone if TABLE is null).  Runs RESTARTS climbs, seeded
+     *  from SEED, annealing from TEMPERATURE (in units of score; 0 for
+     *  plain hill climbing). */
+    public Result search(String ciphertext, String[] rotors, String rings,
+                         String setting, NGramTable table, int maxPairs,
+                         int restarts, double temperature, long seed) {
+        MachineSpec spec = _specs.get(rotors, rings, "");
+        Alphabet alphabet = spec.alphabet();
+        int size = alphabet.size();
+        if (table != null && table.size() != size) {
+            throw error("n-gram table does not fit the alphabet");
+        } else if (restarts <= 0) {
+            throw error("need at least one restart");
+        }
+        String letters = ciphertext.replace(" ", "");
+        int len = letters.length();
+        int[] cipher = new int[len];
+        for (int i = 0; i < len; i++) {
+            cipher[i] = alphabet.toInt(letters.charAt(i));
+        }
+        int[] scramblers = new int[len * size];
+        int[] posns = spec.newState(setting).positions();
+        for (int i = 0; i < len; i++) {
+            spec.advance(posns);
+            for (int c = 0; c < size; c++) {
+                scramblers[i * size + c] = spec.scramble(posns, c);
+            }
+        }
+
+        AtomicReference<Climber> bestSoFar = new AtomicReference<>();
+        AtomicLong trials = new AtomicLong();
+        long start = System.nanoTime();
+        _pool.invoke(new KeyRangeTask((lo, hi) -> {
+            Climber leafBest = null;
+            for (long r = lo; r < hi; r++) {
+                Climber climber = new Climber(cipher, scramblers, size,
+                    maxPairs, r, new Random(seed + r));
+                climber.climb(null, temperature);
+                if (table != null) {
+                    climber.climb(table, temperature);
+                }
+                trials.addAndGet(climber._trials);
+                leafBest = Climber.better(leafBest, climber);
+            }
+            bestSoFar.accumulateAndGet(leafBest, Climber::better);
+        }, 0, restarts, 1));
+        long nanos = System.nanoTime() - start;
+
+        Climber best = bestSoFar.get();
+        char[] plain = new char[len];
+        for (int i = 0; i < len; i++) {
+            plain[i] = alphabet.toChar(best._out[i]);
+        }
+        return new Result(new Permutation(best._plug, alphabet).toString(),
+                          new String(plain), best._score, trials.get(),
+                          nanos);
+    }
+
+    /** The outcome of a search. */
+    public static final class Result {
+
+        /** A result whose best plugboard, PLUGBOARD, deciphers to
+         *  PLAINTEXT with score SCORE, found by trying TRIALS changes in
+         *  NANOS nanoseconds. */
+        Result(String plugboard, String plaintext, double score,
+               long trials, long nanos) {
+            _plugboard = plugboard;
+            _plaintext = plaintext;
+            _score = score;
+            _trials = trials;
+            _nanos = nanos;
+        }
+
+        /** Return the best plugboard, in cycle notation. */
+        public String plugboard() {
+            return _plugboard;
+        }
+
+        /** Return the decryption under the best plugboard. */
+        public String plaintext() {
+            return _plaintext;
+        }
+
+        /** Return the score of the decryption. */
+        public double score() {
+            return _score;
+        }
+
+        /** Return the number of plugboard changes tried. */
+        public long trials() {
+            return _trials;
+        }
+
+        /** Return the time the search took, in nanoseconds. */
+        public long nanos() {
+            return _nanos;
+        }
+
+        /** Best plugboard. */
+        private final String _plugboard;
+        /** Its decryption. */
+        private final String _plaintext;
+        /** Its score. */
+        private final double _score;
+        /** Changes tried. */
+        private final long _trials;
+        /** Duration. */
+        private final long _nanos;
+    }
+
+    /** One climb: a plugboard and the decryption it gives, kept up to
+     *  date as the plugboard changes. */
+    private static final class Climber {
+
+        /** A climber deciphering CIPHER, whose scrambler at position i
+         *  takes c to SCRAMBLERS[i * SIZE + c], with a random plugboard of
+         *  at most MAXPAIRS pairs drawn from RANDOM, making climb number
+         *  RESTART of its search. */
+        Climber(int[] cipher, int[] scramblers, int size, int maxPairs,
+                long restart, Random random) {
+            _restart = restart;
+            _cipher = cipher;
+            _scramblers = scramblers;
+            _size = size;
+            _maxPairs = Math.min(maxPairs, size / 2);
+            _random = random;
+            int len = cipher.length;
+            _plug = new int[size];
+            for (int c = 0; c < size; c++) {
+                _plug[c] = c;
+            }
+            int pairs = _maxPairs == 0 ? 0 : random.nextInt(_maxPairs + 1);
+            for (int k = 0; k < pairs; k++) {
+                int a = random.nextInt(size);
+                int b = random.nextInt(size);
+                if (a != b && _plug[a] == a && _plug[b] == b) {
+                    _plug[a] = b;
+                    _plug[b] = a;
+                    _pairs += 1;
+                }
+            }
+            _mid = new int[len];
+            _out = new int[len];
+            _counts = new int[size];
+            _byCipher = new int[size][];
+            int[] degree = new int[size];
+            for (int c : cipher) {
+                degree[c] += 1;
+            }
+            for (int c = 0; c < size; c++) {
+                _byCipher[c] = new int[degree[c]];
+                degree[c] = 0;
+            }
+            for (int i = 0; i < len; i++) {
+                _byCipher[cipher[i]][degree[cipher[i]]++] = i;
+            }
+            _byMid = new int[size][len];
+            _midCount = new int[size];
+            _slot = new int[len];
+            for (int i = 0; i < len; i++) {
+                int m = _scramblers[i * size + _plug[cipher[i]]];
+                _mid[i] = m;
+                _slot[i] = _midCount[m];
+                _byMid[m][_midCount[m]++] = i;
+                _out[i] = _plug[m];
+                _counts[_out[i]] += 1;
+            }
+            _mark = new int[len];
+            _affected = new int[len];
+            _oldOut = new int[len];
+            _oldMid = new int[len];
+        }
+
+        /** Return whichever of A and B, either of which may be null, has
+         *  the higher score, or the lower restart number if their scores
+         *  are equal, so that the best of many climbers does not depend on
+         *  the order in which they are compared. */
+        static Climber better(Climber a, Climber b) {
+            if (a == null) {
+                return b;
+            } else if (b == null) {
+                return a;
+            } else if (b._score > a._score
+                       || (b._score == a._score && b._restart < a._restart)) {
+                return b;
+            } else {
+                return a;
+            }
+        }
+
+        /** Climb to a local best under TABLE (index of coincidence if
+         *  null), annealing from TEMPERATURE. */
+        void climb(NGramTable table, double temperature) {
+            _table = table;
+            _score = fullScore();
+            double t = temperature;
+            boolean improved = true;
+            while (improved || t > 0) {
+                improved = false;
+                for (int a = 0; a < _size; a++) {
+                    for (int b = a + 1; b < _size; b++) {
+                        double delta = tryPair(a, b);
+                        if (Double.isNaN(delta)) {
+                            continue;
+                        }
+                        _trials += 1;
+                        if (delta > EPSILON) {
+                            _score += delta;
+                            improved = true;
+                        } else if (t > 0 && delta < 0
+                                   && _random.nextDouble()
+                                      < Math.exp(delta / t)) {
+                            _score += delta;
+                        } else {
+                            undo();
+                        }
+                    }
+                }
+                t = t * COOLING < temperature * MIN_TEMPERATURE
+                    ? 0 : t * COOLING;
+            }
+            _score = fullScore();
+        }
+
+        /** Change the plugboard by plugging A to B, or unplugging them if
+         *  they are plugged together, re-deciphering as needed.  Returns
+         *  the change in score, or NaN (changing nothing) if the change
+         *  would exceed the pair limit. */
+        private double tryPair(int a, int b) {
+            int pa = _plug[a];
+            int pb = _plug[b];
+            _nChanged = 0;
+            _oldPairs = _pairs;
+            if (pa == b) {
+                change(a, a);
+                change(b, b);
+                _pairs -= 1;
+            } else {
+                int pairs = _pairs + 1 - (pa != a ? 1 : 0)
+                    - (pb != b ? 1 : 0);
+                if (pairs > _maxPairs) {
+                    return Double.NaN;
+                }
+                if (pa != a) {
+                    change(pa, pa);
+                }
+                if (pb != b) {
+                    change(pb, pb);
+                }
+                change(a, b);
+                change(b, a);
+                _pairs = pairs;
+            }
+            return redecipher();
+        }
+
+        /** Plug C to P, remembering C's old partner for undo. */
+        private void change(int c, int p) {
+            _changed[_nChanged] = c;
+            _oldPlug[_nChanged] = _plug[c];
+            _nChanged += 1;
+            _plug[c] = p;
+        }
+
+        /** Re-decipher the positions affected by the letters just changed
+         *  and return the change in score. */
+        private double redecipher() {
+            _epoch += 1;
+            _nAffected = 0;
+            for (int k = 0; k < _nChanged; k++) {
+                int c = _changed[k];
+                for (int i : _byCipher[c]) {
+                    affect(i);
+                }
+                int[] bucket = _byMid[c];
+                for (int j = 0; j < _midCount[c]; j++) {
+                    affect(bucket[j]);
+                }
+            }
+            double before = _table == null ? iocSum() : windowScore();
+            for (int k = 0; k < _nAffected; k++) {
+                int i = _affected[k];
+                _oldOut[k] = _out[i];
+                _oldMid[k] = _mid[i];
+                int m = _scramblers[i * _size + _plug[_cipher[i]]];
+                moveMid(i, m);
+                setOut(i, _plug[m]);
+            }
+            if (_table == null) {
+                return iocSum() - before;
+            }
+            return windowScore() - before;
+        }
+
+        /** Put back the plugboard and decryption as they were before the
+         *  last tryPair. */
+        private void undo() {
+            for (int k = _nChanged - 1; k >= 0; k--) {
+                _plug[_changed[k]] = _oldPlug[k];
+            }
+            _pairs = _oldPairs;
+            for (int k = _nAffected - 1; k >= 0; k--) {
+                int i = _affected[k];
+                moveMid(i, _oldMid[k]);
+                setOut(i, _oldOut[k]);
+            }
+        }
+
+        /** Note that position I must be re-deciphered. */
+        private void affect(int i) {
+            if (_mark[i] != _epoch) {
+                _mark[i] = _epoch;
+                _affected[_nAffected++] = i;
+            }
+        }
+
+        /** Set the output of position I to C, keeping letter counts. */
+        private void setOut(int i, int c) {
+            _counts[_out[i]] -= 1;
+            _out[i] = c;
+            _counts[c] += 1;
+        }
+
+        /** Move position I to the bucket of middle letter M. */
+        private void moveMid(int i, int m) {
+            int old = _mid[i];
+            if (old == m) {
+                return;
+            }
+            int[] bucket = _byMid[old];
+            int last = bucket[--_midCount[old]];
+            bucket[_slot[i]] = last;
+            _slot[last] = _slot[i];
+            _slot[i] = _midCount[m];
+            _byMid[m][_midCount[m]++] = i;
+            _mid[i] = m;
+        }
+
+        /** Return the total score, under _table, of the n-grams that
+         *  cover any affected position, counting each n-gram once. */
+        private double windowScore() {
+            int order = _table.order();
+            int len = _out.length;
+            double total = 0;
+            _windowEpoch += 1;
+            for (int k = 0; k < _nAffected; k++) {
+                int i = _affected[k];
+                int from = Math.max(0, i - order + 1);
+                int to = Math.min(i, len - order);
+                for (int w = from; w <= to; w++) {
+                    if (_windowMark[w] != _windowEpoch) {
+                        _windowMark[w] = _windowEpoch;
+                        total += _table.logProb(_table.index(_out, w));
+                    }
+                }
+            }
+            return total;
+        }
+
+        /** Return the index of coincidence of my decryption times its
+         *  length, which is on a scale comparable with total n-gram
+         *  log-probabilities. */
+        private double iocSum() {
+            long sum = 0;
+            for (int n : _counts) {
+                sum += (long) n * (n - 1);
+            }
+            int len = _out.length;
+            return len < 2 ? 0 : (double) _size * sum / (len - 1);
+        }
+
+        /** Return my score computed from scratch. */
+        private double fullScore() {
+            if (_table == null) {
+                return iocSum();
+            }
+            if (_windowMark == null) {
+                _windowMark = new int[_out.length];
+            }
+            return _table.score(_out, 0, _out.length);
+        }
+
+        /** Ciphertext letters. */
+        private final int[] _cipher;
+        /** Scrambler tables, SIZE entries per position. */
+        private final int[] _scramblers;
+        /** Alphabet size. */
+        private final int _size;
+        /** Most plugboard pairs allowed. */
+        private final int _maxPairs;
+        /** Source of random choices. */
+        private final Random _random;
+        /** Number of my climb among its search's restarts. */
+        private final long _restart;
+        /** The plugboard, an involution. */
+        private final int[] _plug;
+        /** Number of pairs in _plug. */
+        private int _pairs;
+        /** Number of pairs before the last change. */
+        private int _oldPairs;
+        /** Letter leaving the scrambler at each position. */
+        private final int[] _mid;
+        /** Deciphered letter at each position. */
+        private final int[] _out;
+        /** Number of each letter in _out. */
+        private final int[] _counts;
+        /** Positions holding each ciphertext letter. */
+        private final int[][] _byCipher;
+        /** Positions with each middle letter, first _midCount[m] used. */
+        private final int[][] _byMid;
+        /** Number of positions with each middle letter. */
+        private final int[] _midCount;
+        /** Index of each position in its _byMid bucket. */
+        private final int[] _slot;
+        /** Epoch at which each position was last affected. */
+        private final int[] _mark;
+        /** Current epoch for _mark. */
+        private int _epoch;
+        /** Positions affected by the last change. */
+        private final int[] _affected;
+        /** Number of them. */
+        private int _nAffected;
+        /** Their outputs before the change. */
+        private final int[] _oldOut;
+        /** Their middle letters before the change. */
+        private final int[] _oldMid;
+        /** Letters whose partner the last change set. */
+        private final int[] _changed = new int[4];
+        /** Their partners before the change. */
+        private final int[] _oldPlug = new int[4];
+        /** Number of them. */
+        private int _nChanged;
+        /** Epoch at which each n-gram was last scored. */
+        private int[] _windowMark;
+        /** Current epoch for _windowMark. */
+        private int _windowEpoch;
+        /** Table scored by, or null for index of coincidence. */
+        private NGramTable _table;
+        /** Current score. */
+        private double _score;
+        /** Number of changes tried. */
+        private long _trials;
+    }
+
+    /** Factor by which the annealing temperature falls each sweep. */
+    private static final double COOLING = 0.8;
+    /** Annealing stops below this fraction of its first temperature. */
+    private static final double MIN_TEMPERATURE = 0.01;
+    /** Smallest change in score counted as an improvement. */
+    private static final double EPSILON = 1e-9;
+
+    /** Pool on which climbs run. */
+    private final ForkJoinPool _pool;
+    /** Source of compiled machines. */
+    private final SpecCache _specs;
+}
@@ -1,5 +1,7 @@
 package com.example.enigmaVisual.model;
 
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
 /** Superclass that represents a rotor in the enigma machine.
  *  @author Andy Jiang
  */
@@ -11,6 +13,23 @@ public class Rotor {
         _setting = 0;
     }
 
+    /** Return a new rotor named NAME with wiring CYCLES over ALPHABET, of
+     *  the kind TYPE describes as in a configuration file: "R" for a
+     *  reflector, "N" for a rotor that does not move, or "M" followed by
+     *  the notches of a moving rotor. */
+    public static Rotor of(String name, String type, String cycles,
+                           Alphabet alphabet) {
+        Permutation perm = new Permutation(cycles, alphabet);
+        if (type.startsWith("M")) {
+            return new MovingRotor(name, perm, type.substring(1));
+        } else if (type.equals("R")) {
+            return new Reflector(name, perm);
+        } else if (type.equals("N")) {
+            return new FixedRotor(name, perm);
+        }
+        throw error("bad rotor type: %s", type);
+    }
+
     /** Return my name. */
     String name() {
         return _name;
@@ -61,12 +80,19 @@ public class Rotor {
      **/
     void ringSet(int posn) {
         set(permutation().wrap((setting() - posn)));
+        _ringSetting = permutation().wrap(posn);
     }
     /** Change setting to reflect ringsetting.
      * @param cposn character in the alphabet.
      **/
     void ringSet(char cposn) {
         set(permutation().wrap(setting() - alphabet().toInt(cposn)));
+        _ringSetting = alphabet().toInt(cposn);
+    }
+
+    /** Return my ring setting. */
+    int ringSetting() {
+        return _ringSetting;
     }
 
     /** Return the conversion of P(an integer in the range 0..size()-1)
@@ -123,4 +149,6 @@ public class Rotor {
     private Permutation _permutation;
     /** Setting of the rotor. */
     private int _setting;
+    /** Ring setting of the rotor. */
+    private int _ringSetting;
 }
@@ -0,0 +1,240 @@
+package com.example.enigmaVisual.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** The rotors available to machines over one alphabet, indexed by name,
+ *  so that a rotor is found in constant time however many there are.  A
+ *  catalog can be written to a compact binary snapshot holding each
+ *  rotor's wiring as a table, and read back without parsing any cycles,
+ *  which takes microseconds; the standard catalog, holding the rotors
+ *  and reflectors of the Wehrmacht and Kriegsmarine machines, ships as
+ *  such a snapshot.
+ *  @author Andy Jiang
+ */
+public final class RotorCatalog {
+
+    /** An empty catalog of rotors over ALPHABET. */
+    public RotorCatalog(Alphabet alphabet) {
+        _alphabet = alphabet;
+    }
+
+    /** A catalog of the rotors in ROTORS, over ALPHABET. */
+    public RotorCatalog(Alphabet alphabet, List<Rotor> rotors) {
+        this(alphabet);
+        for (Rotor r : rotors) {
+            add(r);
+        }
+    }
+
+    /** Return the standard catalog, read from the snapshot that ships
+     *  with this class.  Each call returns a new catalog, so its rotors'
+     *  settings are not shared with any other. */
+    public static RotorCatalog standard() {
+        try (InputStream in =
+                 RotorCatalog.class.getResourceAsStream(STANDARD_SNAPSHOT)) {
+            if (in == null) {
+                throw error("missing rotor catalog %s", STANDARD_SNAPSHOT);
+            }
+            return read(new DataInputStream(in));
+        } catch (IOException excp) {
+            throw error("could not read rotor catalog %s", STANDARD_SNAPSHOT);
+        }
+    }
+
+    /** Return the standard catalog built from the cycles in STANDARD,
+     *  from which its snapshot is made. */
+    static RotorCatalog standardFromCycles() {
+        Alphabet alphabet = new Alphabet();
+        RotorCatalog catalog = new RotorCatalog(alphabet);
+        for (String[] rotor : STANDARD) {
+            catalog.add(rotor[0], rotor[1], rotor[2]);
+        }
+        return catalog;
+    }
+
+    /** Add R to me.  Its alphabet must be mine, and no rotor of mine may
+     *  have its name. */
+    public void add(Rotor r) {
+        if (r.size() != _alphabet.size()
+            || !r.alphabet().toString().equals(_alphabet.toString())) {
+            throw error("rotor %s does not fit the alphabet", r.name());
+        }
+        if (_index.putIfAbsent(r.name(), r) != null) {
+            throw error("rotor %s defined twice", r.name());
+        }
+        _rotors.add(r);
+    }
+
+    /** Add a rotor named NAME, of the kind TYPE describes and with wiring
+     *  CYCLES, as for Rotor.of, to me, and return it. */
+    public Rotor add(String name, String type, String cycles) {
+        Rotor r = Rotor.of(name, type, cycles, _alphabet);
+        add(r);
+        return r;
+    }
+
+    /** Return my rotor named NAME.  Throws an EnigmaException if I have
+     *  none. */
+    public Rotor get(String name) {
+        Rotor r = _index.get(name);
+        if (r == null) {
+            throw error("no rotor named %s", name);
+        }
+        return r;
+    }
+
+    /** Return true iff I have a rotor named NAME. */
+    public boolean contains(String name) {
+        return _index.containsKey(name);
+    }
+
+    /** Return my rotors, in the order they were added. */
+    public List<Rotor> rotors() {
+        return Collections.unmodifiableList(_rotors);
+    }
+
+    /** Return the number of rotors I have. */
+    public int size() {
+        return _rotors.size();
+    }
+
+    /** Return my alphabet. */
+    public Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Write a snapshot of me to OUT: my alphabet, then each rotor's
+     *  name, kind, notches and forward wiring, one byte per contact if my
+     *  alphabet has at most 256 characters and four otherwise. */
+    public void write(DataOutput out) throws IOException {
+        int size = _alphabet.size();
+        out.writeInt(MAGIC);
+        out.writeUTF(_alphabet.toString());
+        out.writeInt(_rotors.size());
+        for (Rotor r : _rotors) {
+            out.writeUTF(r.name());
+            if (r.rotates()) {
+                out.writeByte('M');
+                out.writeUTF(new String(r.getNotch()));
+            } else {
+                out.writeByte(r.reflecting() ? 'R' : 'N');
+            }
+            for (int c : r.permutation().toArray()) {
+                if (size <= BYTE_CONTACTS) {
+                    out.writeByte(c);
+                } else {
+                    out.writeInt(c);
+                }
+            }
+        }
+    }
+
+    /** Return a catalog read from a snapshot in IN, as written by
+     *  write. */
+    public static RotorCatalog read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw error("not a rotor catalog");
+        }
+        Alphabet alphabet = new Alphabet(in.readUTF());
+        RotorCatalog catalog = new RotorCatalog(alphabet);
+        int size = alphabet.size();
+        for (int n = in.readInt(); n > 0; n--) {
+            String name = in.readUTF();
+            byte kind = in.readByte();
+            String notches = kind == 'M' ? in.readUTF() : null;
+            int[] wiring = new int[size];
+            for (int i = 0; i < size; i++) {
+                wiring[i] = size <= BYTE_CONTACTS ? in.readUnsignedByte()
+                    : in.readInt();
+            }
+            Permutation perm = new Permutation(wiring, alphabet);
+            if (kind == 'M') {
+                catalog.add(new MovingRotor(name, perm, notches));
+            } else if (kind == 'R') {
+                catalog.add(new Reflector(name, perm));
+            } else if (kind == 'N') {
+                catalog.add(new FixedRotor(name, perm));
+            } else {
+                throw error("bad rotor kind in catalog: %d", kind);
+            }
+        }
+        return catalog;
+    }
+
+    /** Return a snapshot of me, as written by write. */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(new DataOutputStream(bytes));
+        } catch (IOException excp) {
+            throw error("could not write rotor catalog");
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Return a catalog read from SNAPSHOT, as returned by toBytes. */
+    public static RotorCatalog fromBytes(byte[] snapshot) {
+        try {
+            return read(new DataInputStream(
+                new ByteArrayInputStream(snapshot)));
+        } catch (IOException excp) {
+            throw error("truncated rotor catalog");
+        }
+    }
+
+    /** Resource holding the snapshot of the standard catalog. */
+    static final String STANDARD_SNAPSHOT = "standard-rotors.bin";
+
+    /** The standard rotors, as name, type and cycles: the Wehrmacht
+     *  rotors I to V, the Kriegsmarine rotors VI to VIII, the fourth
+     *  rotors Beta and Gamma of the M4, its thin reflectors B and C, and
+     *  the wide reflectors UKW-A, UKW-B and UKW-C of the three-rotor
+     *  machines. */
+    static final String[][] STANDARD = {
+        {"I", "MQ", "(AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)"},
+        {"II", "ME", "(FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)"},
+        {"III", "MV", "(ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)"},
+        {"IV", "MJ", "(AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)"},
+        {"V", "MZ", "(AVOLDRWFIUQ)(BZKSMNHYC) (EGTJPX)"},
+        {"VI", "MZM", "(AJQDVLEOZWIYTS) (CGMNHFUX) (BPRK)"},
+        {"VII", "MZM", "(ANOUPFRIMBZTLWKSVEGCJYDHXQ)"},
+        {"VIII", "MZM", "(AFLSETWUNDHOZVICQ) (BKJ) (GXY) (MPR)"},
+        {"Beta", "N", "(ALBEVFCYODJWUGNMQTZSKPR) (HIX)"},
+        {"Gamma", "N", "(AFNIRLBSQWVXGUZDKMTPCOYJHE)"},
+        {"B", "R", "(AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP) "
+            + "(RX) (SZ) (TV)"},
+        {"C", "R", "(AR) (BD) (CO) (EJ) (FN) (GT) (HK) (IV) (LM) (PW) "
+            + "(QZ) (SX) (UY)"},
+        {"UKW-A", "R", "(AE) (BJ) (CM) (DZ) (FL) (GY) (HX) (IV) (KW) (NR) "
+            + "(OQ) (PU) (ST)"},
+        {"UKW-B", "R", "(AY) (BR) (CU) (DH) (EQ) (FS) (GL) (IP) (JX) (KN) "
+            + "(MO) (TZ) (VW)"},
+        {"UKW-C", "R", "(AF) (BV) (CP) (DJ) (EI) (GO) (HY) (KR) (LZ) (MX) "
+            + "(NW) (QT) (SU)"},
+    };
+
+    /** First bytes of a snapshot. */
+    private static final int MAGIC = 0x454e5243;
+    /** Largest alphabet whose contacts are written as single bytes. */
+    private static final int BYTE_CONTACTS = 256;
+
+    /** Alphabet of all my rotors. */
+    private final Alphabet _alphabet;
+    /** My rotors, in the order they were added. */
+    private final List<Rotor> _rotors = new ArrayList<>();
+    /** My rotors, by name. */
+    private final HashMap<String, Rotor> _index = new HashMap<>();
+}
@@ -0,0 +1,262 @@
+package com.example.enigmaVisual.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** A bounded cache of compiled MachineSpecs, keyed by MachineKey, for
+ *  rotors drawn from one set of available rotors.  The least recently
+ *  used specs are evicted when the cache holds too many entries or when
+ *  their total weight (roughly, the bytes their tables occupy) is too
+ *  large.  Safe for use by many threads; a spec is compiled outside the
+ *  cache's lock, so a slow miss never holds up hits.
+ *  @author Andy Jiang
+ */
+public final class SpecCache {
+
+    /** A cache of at most MAXENTRIES specs weighing at most MAXWEIGHT
+     *  bytes in all, built from the rotors in AVAILABLE, which must all
+     *  use ALPHABET. */
+    public SpecCache(Alphabet alphabet, List<Rotor> available,
+                     int maxEntries, long maxWeight) {
+        this(new RotorCatalog(alphabet, available), maxEntries, maxWeight);
+    }
+
+    /** A cache of at most MAXENTRIES specs weighing at most MAXWEIGHT
+     *  bytes in all, built from the rotors in AVAILABLE. */
+    public SpecCache(RotorCatalog available, int maxEntries,
+                     long maxWeight) {
+        if (maxEntries <= 0 || maxWeight <= 0) {
+            throw error("cache bounds must be positive");
+        }
+        _alphabet = available.alphabet();
+        _available = available;
+        _maxEntries = maxEntries;
+        _maxWeight = maxWeight;
+        _entries = new LinkedHashMap<>(16, 0.75f, true);
+        _aliases = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, MachineKey> eldest) {
+                return size() > _maxEntries;
+            }
+        };
+    }
+
+    /** Return my alphabet. */
+    public Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the key for rotors ROTORS, ring setting RINGS and plugboard
+     *  PLUGBOARD, as for the MachineKey constructor, in my alphabet. */
+    public MachineKey key(String[] rotors, String rings, String plugboard) {
+        return new MachineKey(_alphabet, rotors, rings, plugboard);
+    }
+
+    /** Return the spec for KEY, compiling and caching it if it is not
+     *  already cached. */
+    public MachineSpec get(MachineKey key) {
+        synchronized (_entries) {
+            MachineSpec spec = _entries.get(key);
+            if (spec != null) {
+                _hits += 1;
+                return spec;
+            }
+            _misses += 1;
+        }
+        MachineSpec spec = key.compile(_available);
+        synchronized (_entries) {
+            MachineSpec raced = _entries.putIfAbsent(key, spec);
+            if (raced != null) {
+                return raced;
+            }
+            _weight += spec.weight();
+            evict();
+        }
+        return spec;
+    }
+
+    /** Return the spec for rotors ROTORS, ring setting RINGS and plugboard
+     *  PLUGBOARD, as for get(key(ROTORS, RINGS, PLUGBOARD)).  The key made
+     *  for the same text is remembered, so a configuration asked for
+     *  again is found without parsing its plugboard or rings. */
+    public MachineSpec get(String[] rotors, String rings, String plugboard) {
+        String text = configuration(rotors, rings, plugboard);
+        MachineKey key;
+        synchronized (_entries) {
+            key = _aliases.get(text);
+        }
+        if (key == null) {
+            key = key(rotors, rings, plugboard);
+            synchronized (_entries) {
+                _aliases.put(text, key);
+            }
+        }
+        return get(key);
+    }
+
+    /** Return text describing rotors ROTORS, ring setting RINGS and
+     *  plugboard PLUGBOARD, any of which may be null, that differs for
+     *  any other such configuration however the same characters are
+     *  split among them.  Each rotor name and setting is written after
+     *  its length, and a null as '-'. */
+    public static String configuration(String[] rotors, String rings,
+                                       String plugboard) {
+        StringBuilder text = new StringBuilder();
+        if (rotors == null) {
+            text.append('-');
+        } else {
+            text.append(rotors.length).append(':');
+            for (String name : rotors) {
+                field(text, name);
+            }
+        }
+        field(text, rings);
+        field(text, plugboard);
+        return text.toString();
+    }
+
+    /** Append FIELD, which may be null, to TEXT, as for
+     *  configuration. */
+    private static void field(StringBuilder text, String field) {
+        if (field == null) {
+            text.append('-');
+        } else {
+            text.append(field.length()).append(':').append(field);
+        }
+    }
+
+    /** Return the spec for the configuration written as TEXT by
+     *  configuration, which must name its rotors, as for
+     *  get(ROTORS, RINGS, PLUGBOARD). */
+    public MachineSpec get(String text) {
+        int[] at = {0};
+        String[] rotors = new String[length(text, at)];
+        for (int i = 0; i < rotors.length; i++) {
+            rotors[i] = field(text, at);
+            if (rotors[i] == null) {
+                throw error("malformed configuration");
+            }
+        }
+        String rings = field(text, at);
+        String plugboard = field(text, at);
+        if (at[0] != text.length()) {
+            throw error("malformed configuration");
+        }
+        return get(rotors, rings, plugboard);
+    }
+
+    /** Return the field of TEXT, written as by configuration, that
+     *  starts at AT[0], advancing AT[0] past it. */
+    private static String field(String text, int[] at) {
+        if (text.startsWith("-", at[0])) {
+            at[0] += 1;
+            return null;
+        }
+        int len = length(text, at);
+        if (len > text.length() - at[0]) {
+            throw error("malformed configuration");
+        }
+        at[0] += len;
+        return text.substring(at[0] - len, at[0]);
+    }
+
+    /** Return the length written in TEXT, as by configuration, at AT[0],
+     *  advancing AT[0] past it and its colon. */
+    private static int length(String text, int[] at) {
+        int colon = text.indexOf(':', at[0]);
+        try {
+            int len = Integer.parseInt(text.substring(at[0],
+                                       Math.max(at[0], colon)));
+            if (len < 0) {
+                throw error("malformed configuration");
+            }
+            at[0] = colon + 1;
+            return len;
+        } catch (NumberFormatException excp) {
+            throw error("malformed configuration");
+        }
+    }
+
+    /** Remove every entry. */
+    public void clear() {
+        synchronized (_entries) {
+            _entries.clear();
+            _aliases.clear();
+            _weight = 0;
+        }
+    }
+
+    /** Return the number of specs cached. */
+    public int size() {
+        synchronized (_entries) {
+            return _entries.size();
+        }
+    }
+
+    /** Return the total weight of the specs cached. */
+    public long weight() {
+        synchronized (_entries) {
+            return _weight;
+        }
+    }
+
+    /** Return the number of lookups that found their spec cached. */
+    public long hits() {
+        synchronized (_entries) {
+            return _hits;
+        }
+    }
+
+    /** Return the number of lookups that had to compile their spec. */
+    public long misses() {
+        synchronized (_entries) {
+            return _misses;
+        }
+    }
+
+    /** Return the number of specs evicted so far. */
+    public long evictions() {
+        synchronized (_entries) {
+            return _evictions;
+        }
+    }
+
+    /** Drop least recently used entries until I am within my bounds,
+     *  always keeping the newest.  Called holding the lock on _entries. */
+    private void evict() {
+        Iterator<MachineSpec> oldest = _entries.values().iterator();
+        while ((_entries.size() > _maxEntries || _weight > _maxWeight)
+               && _entries.size() > 1) {
+            _weight -= oldest.next().weight();
+            oldest.remove();
+            _evictions += 1;
+        }
+    }
+
+    /** Alphabet of all my rotors. */
+    private final Alphabet _alphabet;
+    /** Rotors that keys may name. */
+    private final RotorCatalog _available;
+    /** Largest number of entries kept. */
+    private final int _maxEntries;
+    /** Largest total weight kept. */
+    private final long _maxWeight;
+    /** Cached specs, least recently used first. */
+    private final LinkedHashMap<MachineKey, MachineSpec> _entries;
+    /** Keys of recently used configurations, by the text they were given
+     *  in.  Guarded by the lock on _entries. */
+    private final LinkedHashMap<String, MachineKey> _aliases;
+    /** Total weight of the cached specs. */
+    private long _weight;
+    /** Number of lookups answered from the cache. */
+    private long _hits;
+    /** Number of lookups that compiled a spec. */
+    private long _misses;
+    /** Number of entries evicted. */
+    private long _evictions;
+}
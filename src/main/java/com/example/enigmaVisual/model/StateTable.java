@@ -0,0 +1,378 @@
+package com.example.enigmaVisual.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.example.enigmaVisual.model.EnigmaException.error;
+
+/** A precomputed table of every state a MachineSpec can reach from a
+ *  given setting of its non-rotating rotors.  Each state has a row holding
+ *  the complete substitution the machine performs in that state, plugboard
+ *  included, and the number of the state that follows it.  Converting a
+ *  character is then one step along the table and one lookup in a row.
+ *
+ *  The table lives off-heap, in a direct buffer or in a memory-mapped
+ *  file that a later run can open again.  Its size is the number of
+ *  settings of the rotating rotors (26^3 = 17,576 for a standard machine)
+ *  times the row length, so it is only built within a caller's memory
+ *  budget.  The rotating rotors must be a block at the right end of the
+ *  machine, as in every real Enigma.
+ *  @author Andy Jiang
+ */
+public final class StateTable {
+
+    /** A table for SPEC with the settings of its non-rotating rotors
+     *  taken from FIXED, held in TABLE. */
+    private StateTable(MachineSpec spec, int[] fixed, ByteBuffer table) {
+        _spec = spec;
+        _fixed = fixed;
+        _table = table;
+        _size = spec.alphabet().size();
+        _first = spec.firstRotating();
+        _wide = _size > BYTE_LIMIT;
+        _recordSize = recordSize(_size);
+        _states = (int) states(spec);
+    }
+
+    /** Return a table for SPEC, built in a direct buffer, covering the
+     *  states reachable from START.  Throws an exception if the table
+     *  would take more than MAXBYTES bytes. */
+    public static StateTable build(MachineSpec spec, MachineState start,
+                                   long maxBytes) {
+        long bytes = checkBudget(spec, maxBytes);
+        ByteBuffer table = ByteBuffer.allocateDirect((int) bytes)
+            .order(ByteOrder.nativeOrder());
+        StateTable result =
+            new StateTable(spec, start.positions().clone(), table);
+        result.fill();
+        return result;
+    }
+
+    /** Return a table for SPEC covering the states reachable from START,
+     *  built in FILE, which is created or overwritten and mapped into
+     *  memory.  Throws an exception if the table would take more than
+     *  MAXBYTES bytes or FILE cannot be written. */
+    public static StateTable build(MachineSpec spec, MachineState start,
+                                   long maxBytes, Path file) {
+        long bytes = checkBudget(spec, maxBytes);
+        try (FileChannel channel = FileChannel.open(file,
+                 StandardOpenOption.CREATE, StandardOpenOption.READ,
+                 StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer table =
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            table.order(ByteOrder.BIG_ENDIAN);
+            StateTable result =
+                new StateTable(spec, start.positions().clone(), table);
+            result.fill();
+            table.force();
+            return result;
+        } catch (IOException excp) {
+            throw error("could not write %s", file);
+        }
+    }
+
+    /** Return the table for SPEC and START previously built in FILE.
+     *  Throws an exception if FILE cannot be read or does not hold a
+     *  table for SPEC at the settings of START. */
+    public static StateTable open(MachineSpec spec, MachineState start,
+                                  Path file) {
+        long bytes = checkBudget(spec, Long.MAX_VALUE);
+        try (FileChannel channel = FileChannel.open(file,
+                 StandardOpenOption.READ)) {
+            if (channel.size() != bytes) {
+                throw error("%s is not a state table for this machine",
+                            file);
+            }
+            MappedByteBuffer table =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            table.order(ByteOrder.BIG_ENDIAN);
+            StateTable result =
+                new StateTable(spec, start.positions().clone(), table);
+            if (!result.verify()) {
+                throw error("%s is not a state table for this machine",
+                            file);
+            }
+            return result;
+        } catch (IOException excp) {
+            throw error("could not open %s", file);
+        }
+    }
+
+    /** Return the number of bytes a table for SPEC takes, or -1 if SPEC
+     *  cannot have a table. */
+    public static long bytesNeeded(MachineSpec spec) {
+        if (spec.firstRotating() < 0
+            || spec.alphabet().size() > CHAR_LIMIT) {
+            return -1;
+        }
+        long states = states(spec);
+        if (states < 0) {
+            return -1;
+        }
+        return HEADER + states * recordSize(spec);
+    }
+
+    /** Return my spec. */
+    public MachineSpec spec() {
+        return _spec;
+    }
+
+    /** Return the number of states I hold. */
+    public int states() {
+        return _states;
+    }
+
+    /** Returns the result of converting the input character C (as an
+     *  index into my alphabet) in STATE, after first advancing STATE,
+     *  exactly as MachineSpec.convert does. */
+    public int convert(MachineState state, int c) {
+        checkFixed(state);
+        int index = next(indexOf(state.positions()));
+        setPositions(state.positions(), index);
+        return entry(index, c);
+    }
+
+    /** Convert the LEN characters of SRC starting at OFF into DST starting
+     *  at DSTOFF in STATE, treating characters outside my alphabet
+     *  according to POLICY.  Returns the number of characters written,
+     *  which is at most LEN.  SRC and DST may be the same array if
+     *  DSTOFF <= OFF.  Throws an EnigmaException if my alphabet has
+     *  characters outside the Basic Multilingual Plane. */
+    public int convert(MachineState state, char[] src, int off, int len,
+                       char[] dst, int dstOff, CharPolicy policy) {
+        _spec.checkChars();
+        checkFixed(state);
+        int index = indexOf(state.positions());
+        int out = dstOff;
+        try {
+            for (int i = off; i < off + len; i++) {
+                char c = src[i];
+                int k = _spec.indexOf(c, policy);
+                if (k >= 0) {
+                    index = next(index);
+                    dst[out++] = _spec.toChar(entry(index, k));
+                } else if (policy == CharPolicy.PASS) {
+                    dst[out++] = c;
+                }
+            }
+        } finally {
+            setPositions(state.positions(), index);
+        }
+        return out - dstOff;
+    }
+
+    /** Convert the LEN single-byte characters of SRC starting at OFF into
+     *  DST starting at DSTOFF in STATE, treating characters outside my
+     *  alphabet according to POLICY.  Returns the number of bytes
+     *  written.  SRC and DST may be the same array if DSTOFF <= OFF.
+     *  Throws an EnigmaException unless my alphabet consists of
+     *  characters below 256. */
+    public int convert(MachineState state, byte[] src, int off, int len,
+                       byte[] dst, int dstOff, CharPolicy policy) {
+        _spec.checkBytes();
+        checkFixed(state);
+        int index = indexOf(state.positions());
+        int out = dstOff;
+        try {
+            for (int i = off; i < off + len; i++) {
+                byte b = src[i];
+                int k = _spec.indexOf((char) (b & 0xFF), policy);
+                if (k >= 0) {
+                    index = next(index);
+                    dst[out++] = (byte) _spec.toChar(entry(index, k));
+                } else if (policy == CharPolicy.PASS) {
+                    dst[out++] = b;
+                }
+            }
+        } finally {
+            setPositions(state.positions(), index);
+        }
+        return out - dstOff;
+    }
+
+    /** Return the number of the state following state INDEX. */
+    private int next(int index) {
+        return _table.getInt(HEADER + index * _recordSize);
+    }
+
+    /** Return the image of character C in state INDEX. */
+    private int entry(int index, int c) {
+        int row = HEADER + index * _recordSize + Integer.BYTES;
+        if (_wide) {
+            return _table.getChar(row + c * Character.BYTES);
+        }
+        return _table.get(row + c) & 0xFF;
+    }
+
+    /** Fill my header and rows from my spec. */
+    private void fill() {
+        _table.putInt(0, MAGIC);
+        _table.putInt(Integer.BYTES, _size);
+        _table.putInt(2 * Integer.BYTES, _spec.numRotors());
+        _table.putInt(3 * Integer.BYTES, _states);
+        _table.putLong(4 * Integer.BYTES, fixedHash());
+        int[] posns = _fixed.clone();
+        for (int index = 0; index < _states; index++) {
+            setPositions(posns, index);
+            int pos = HEADER + index * _recordSize;
+            _spec.advance(posns);
+            _table.putInt(pos, indexOf(posns));
+            setPositions(posns, index);
+            pos += Integer.BYTES;
+            for (int c = 0; c < _size; c++) {
+                int image = _spec.scramble(posns, c);
+                if (_wide) {
+                    _table.putChar(pos + c * Character.BYTES, (char) image);
+                } else {
+                    _table.put(pos + c, (byte) image);
+                }
+            }
+        }
+    }
+
+    /** Return true iff my header and a sample of my rows agree with my
+     *  spec and fixed settings. */
+    private boolean verify() {
+        if (_table.getInt(0) != MAGIC
+            || _table.getInt(Integer.BYTES) != _size
+            || _table.getInt(2 * Integer.BYTES) != _spec.numRotors()
+            || _table.getInt(3 * Integer.BYTES) != _states
+            || _table.getLong(4 * Integer.BYTES) != fixedHash()) {
+            return false;
+        }
+        int[] posns = _fixed.clone();
+        int step = Math.max(1, _states / VERIFY_SAMPLES);
+        for (int index = 0; index < _states; index += step) {
+            setPositions(posns, index);
+            for (int c = 0; c < _size; c++) {
+                if (entry(index, c) != _spec.scramble(posns, c)) {
+                    return false;
+                }
+            }
+            _spec.advance(posns);
+            if (next(index) != indexOf(posns)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return a hash of my spec's rotor names and ring settings and of
+     *  my fixed rotor settings, identifying the table I hold. */
+    private long fixedHash() {
+        long h = 1;
+        for (int i = 0; i < _spec.numRotors(); i++) {
+            h = 31 * h + _spec.rotorName(i).hashCode();
+            h = 31 * h + _spec.ringSetting(i);
+            if (i < _first) {
+                h = 31 * h + _fixed[i];
+            }
+        }
+        return 31 * h + _spec.plugboard().toString().hashCode();
+    }
+
+    /** Throws an exception unless the non-rotating rotors in STATE are
+     *  set as they were when I was built. */
+    private void checkFixed(MachineState state) {
+        int[] posns = state.positions();
+        for (int i = 0; i < _first; i++) {
+            if (posns[i] != _fixed[i]) {
+                throw error("state is not covered by this table");
+            }
+        }
+    }
+
+    /** Return the number of the state with rotating rotors set as in
+     *  POSNS. */
+    private int indexOf(int[] posns) {
+        int index = 0;
+        for (int i = _first; i < posns.length; i++) {
+            index = index * _size + posns[i];
+        }
+        return index;
+    }
+
+    /** Set the rotating rotors in POSNS as they are in state INDEX. */
+    private void setPositions(int[] posns, int index) {
+        for (int i = posns.length - 1; i >= _first; i--) {
+            posns[i] = index % _size;
+            index /= _size;
+        }
+    }
+
+    /** Throws an exception if SPEC cannot have a table or its table would
+     *  take more than MAXBYTES bytes; otherwise returns its size. */
+    private static long checkBudget(MachineSpec spec, long maxBytes) {
+        if (spec.firstRotating() < 0) {
+            throw error("rotating rotors are not at the right end");
+        }
+        long bytes = bytesNeeded(spec);
+        if (bytes < 0 || bytes > Integer.MAX_VALUE) {
+            throw error("machine has too many states for a table");
+        } else if (bytes > maxBytes) {
+            throw error("state table needs %d bytes, over budget of %d",
+                        bytes, maxBytes);
+        }
+        return bytes;
+    }
+
+    /** Return the number of settings of the rotating rotors of SPEC, or
+     *  -1 if there are more than Integer.MAX_VALUE. */
+    private static long states(MachineSpec spec) {
+        long states = 1;
+        for (int i = spec.firstRotating(); i < spec.numRotors(); i++) {
+            states *= spec.alphabet().size();
+            if (states > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return states;
+    }
+
+    /** Return the length of a row for SPEC. */
+    private static int recordSize(MachineSpec spec) {
+        return recordSize(spec.alphabet().size());
+    }
+
+    /** Return the length of a row for an alphabet of SIZE symbols. */
+    private static int recordSize(int size) {
+        return Integer.BYTES
+            + size * (size > BYTE_LIMIT ? Character.BYTES : 1);
+    }
+
+    /** Marks the start of a table. */
+    private static final int MAGIC = 0x454E5354;
+    /** Bytes before the first row: magic, alphabet size, rotor count,
+     *  state count and the hash of the fixed settings. */
+    private static final int HEADER = 4 * Integer.BYTES + Long.BYTES;
+    /** Largest alphabet whose entries fit in a byte. */
+    private static final int BYTE_LIMIT = 256;
+    /** Largest alphabet whose entries fit in a char. */
+    private static final int CHAR_LIMIT = 1 << 16;
+    /** Number of rows checked when opening a table from a file. */
+    private static final int VERIFY_SAMPLES = 64;
+
+    /** The machine I tabulate. */
+    private final MachineSpec _spec;
+    /** Settings of the non-rotating rotors, in their slots; the other
+     *  slots are unused. */
+    private final int[] _fixed;
+    /** Header and rows. */
+    private final ByteBuffer _table;
+    /** Size of my alphabet. */
+    private final int _size;
+    /** First rotating slot. */
+    private final int _first;
+    /** True iff entries take two bytes rather than one. */
+    private final boolean _wide;
+    /** Bytes per row. */
+    private final int _recordSize;
+    /** Number of rows. */
+    private final int _states;
+}
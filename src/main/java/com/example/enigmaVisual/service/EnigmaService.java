@@ -1,15 +1,90 @@
 package com.example.enigmaVisual.service;
 
 import com.example.enigmaVisual.dao.EnigmaDao;
+import com.example.enigmaVisual.model.MachineSpec;
+import com.example.enigmaVisual.model.MachineState;
+import com.example.enigmaVisual.model.SpecCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.util.UUID;
+import java.util.function.BiFunction;
+
 @Service
 public class EnigmaService {
+    /** Most compiled machine specs kept at once. */
+    private static final int MAX_SPECS = 1024;
+    /** Most bytes of compiled machine specs kept at once. */
+    private static final long MAX_SPEC_BYTES = 16L << 20;
+
     private final EnigmaDao enigmadao;
+    /** Compiled specs of recently used configurations. */
+    private final SpecCache specs;
+
     @Autowired
-    public EnigmaService(@Qualifier("enigmadao") EnigmaDao enigmadao) {
+    public EnigmaService(@Qualifier("enigmaDao") EnigmaDao enigmadao) {
         this.enigmadao = enigmadao;
+        this.specs = new SpecCache(enigmadao.catalog(), MAX_SPECS,
+            MAX_SPEC_BYTES);
+        enigmadao.sessions().recover(this::spec);
+    }
+
+    /** Return the compiled spec of a machine with rotors ROTORS (the
+     *  reflector first), ring setting RINGS (null for none) and plugboard
+     *  PLUGBOARD, reusing it if the same configuration was seen lately. */
+    public MachineSpec spec(String[] rotors, String rings, String plugboard) {
+        if (rotors.length != enigmadao.numRotors()) {
+            throw new IllegalArgumentException("wrong number of rotors");
+        }
+        return specs.get(rotors, rings, plugboard);
+    }
+
+    /** Start a session whose machine has rotors ROTORS, ring setting RINGS
+     *  and plugboard PLUGBOARD, as for spec, with its rotors at POSITIONS.
+     *  Returns the new session's ID. */
+    public String openSession(String[] rotors, String rings,
+                              String plugboard, String positions) {
+        MachineSpec spec = spec(rotors, rings, plugboard);
+        String id = UUID.randomUUID().toString();
+        int config = enigmadao.configuration(
+            SpecCache.configuration(rotors, rings, plugboard));
+        enigmadao.sessions().put(id, config, spec,
+                                 spec.newState(positions));
+        return id;
+    }
+
+    /** Return MSG converted on the machine of session ID, whose rotors are
+     *  left where converting MSG leaves them. */
+    public String convert(String id, String msg) {
+        return useSession(id, (spec, state) -> spec.convert(state, msg));
+    }
+
+    /** Return the result of ACTION applied to the machine of session ID
+     *  and its rotor settings, keeping the settings ACTION leaves, as for
+     *  SessionStore.apply. */
+    public <T> T useSession(String id,
+                            BiFunction<MachineSpec, MachineState, T> action) {
+        return enigmadao.sessions().apply(id, action);
+    }
+
+    /** End session ID.  Returns true iff it existed. */
+    public boolean closeSession(String id) {
+        return enigmadao.sessions().remove(id);
+    }
+
+    /** Return the spec of a configuration written as by
+     *  SpecCache.configuration. */
+    private MachineSpec spec(String config) {
+        MachineSpec spec = specs.get(config);
+        if (spec.numRotors() != enigmadao.numRotors()) {
+            throw new IllegalArgumentException("wrong number of rotors");
+        }
+        return spec;
+    }
+
+    /** Return the cache of compiled specs, for its statistics. */
+    public SpecCache specCache() {
+        return specs;
     }
 }
@@ -0,0 +1,263 @@
+package com.example.enigmaVisual.api;
+
+import com.example.enigmaVisual.dao.EnigmaDao;
+import com.example.enigmaVisual.model.CharPolicy;
+import com.example.enigmaVisual.model.EnigmaException;
+import com.example.enigmaVisual.service.EnigmaService;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.PostMapping;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static com.example.enigmaVisual.model.CharPolicy.PASS;
+import static com.example.enigmaVisual.model.CharPolicy.SKIP;
+
+/** Tests of the REST controller, called directly.
+ *  @author Andy Jiang
+ */
+class EnigmaControllerTest {
+
+    /** Controller under test. */
+    private final EnigmaController controller =
+        new EnigmaController(new EnigmaService(new EnigmaDao()));
+
+    /** Return a request for MESSAGE on the machine of the standard test
+     *  vector, with the rotors starting at POSITIONS. */
+    static EncryptRequest request(String positions, String message) {
+        EncryptRequest request = new EncryptRequest();
+        request.setRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+        request.setPositions(positions);
+        request.setPlugboard("(HQ) (EX) (IP) (TR) (BY)");
+        request.setMessage(message);
+        return request;
+    }
+
+    @Test
+    void encrypt() {
+        EncryptRequest request =
+            request("AXLE", "FROM HIS SHOULDER HIAWATHA");
+        request.setGroupSize(5);
+        EncryptResponse response = controller.encrypt(request);
+        assertEquals("QVPQS OKOIL PUBKJ ZPISF XDW", response.getCiphertext());
+        assertEquals("AXMB", response.getPositions());
+        response = controller.encrypt(request("AXLE",
+                                              "QVPQSOKOILPUBKJZPISFXDW"));
+        assertEquals("FROMHISSHOULDERHIAWATHA", response.getCiphertext());
+    }
+
+    @Test
+    void badRequests() {
+        EncryptRequest request = request("AXLE", "HI");
+        request.setRotors(new String[] {"B", "Beta", "III", "IV", "Q"});
+        assertThrows(EnigmaException.class, () -> controller.encrypt(request));
+        request.setRotors(new String[] {"B", "Beta", "III", "IV"});
+        assertThrows(IllegalArgumentException.class,
+            () -> controller.encrypt(request));
+        assertThrows(EnigmaException.class,
+            () -> controller.encrypt(request("AXL", "HI")));
+        assertEquals(400, controller.badRequest(new EnigmaException("x"))
+                     .getStatusCodeValue());
+    }
+
+    @Test
+    void encryptBatch() {
+        EncryptRequest bad = request("AXLE", "HI");
+        bad.setRotors(new String[] {"B", "Beta", "III", "IV", "Q"});
+        EncryptRequest grouped = request("AXLE", "FROMHISSHOULDERHIAWATHA");
+        grouped.setGroupSize(5);
+        List<EncryptResponse> replies = controller.encryptBatch(
+            Arrays.asList(request("AXLE", "FROM HIS SHOULDER HIAWATHA"),
+                          bad, request("AXL", "HI"), null, grouped,
+                          request("AXLE", "QVPQSOKOILPUBKJZPISFXDW")))
+            .block();
+        assertEquals(6, replies.size());
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+                     replies.get(0).getCiphertext());
+        assertEquals("AXMB", replies.get(0).getPositions());
+        assertEquals("no rotor named Q", replies.get(1).getError());
+        assertNull(replies.get(1).getCiphertext());
+        assertEquals("wrong number of settings", replies.get(2).getError());
+        assertEquals("rotors, positions and message are required",
+                     replies.get(3).getError());
+        assertEquals("QVPQS OKOIL PUBKJ ZPISF XDW",
+                     replies.get(4).getCiphertext());
+        assertEquals("FROMHISSHOULDERHIAWATHA",
+                     replies.get(5).getCiphertext());
+        assertNull(replies.get(5).getError());
+        EncryptRequest rings = request("AXLE", "HI");
+        rings.setRings("null");
+        replies = controller.encryptBatch(
+            Arrays.asList(request("AXLE", "HI"), rings)).block();
+        assertNull(replies.get(0).getError());
+        assertEquals("Character is not in alphabet", replies.get(1).getError());
+    }
+
+    @Test
+    void encryptStream() {
+        String[] rotors = {"B", "Beta", "III", "IV", "I"};
+        String plugboard = "(HQ) (EX) (IP) (TR) (BY)";
+        String[] chunks = {"FROM H", "IS SHOULDER HIA", "WATHA"};
+        assertEquals("QVPQ SOK OILPUBKJ ZPISFXDW",
+                     stream(controller.encryptStream(rotors, "AXLE", null,
+                         plugboard, PASS, buffers(chunks))));
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+                     stream(controller.encryptStream(rotors, "AXLE", null,
+                         plugboard, SKIP, buffers(chunks))));
+    }
+
+    @Test
+    void rejectedStreamsReleaseBuffers() {
+        List<NettyDataBuffer> allocated = new ArrayList<>();
+        DataBufferFactory factory =
+            new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT) {
+                @Override
+                public NettyDataBuffer allocateBuffer(int size) {
+                    NettyDataBuffer buffer = super.allocateBuffer(size);
+                    allocated.add(buffer);
+                    return buffer;
+                }
+            };
+        NettyDataBuffer in = (NettyDataBuffer) factory.wrap(
+            "FROM 1 SHOULDER".getBytes(StandardCharsets.US_ASCII));
+        Flux<DataBuffer> out = controller.encryptStream(
+            new String[] {"B", "Beta", "III", "IV", "I"}, "AXLE", null,
+            null, CharPolicy.REJECT, Flux.just(in));
+        assertThrows(EnigmaException.class, () -> out.blockLast());
+        assertEquals(1, allocated.size());
+        assertEquals(0, allocated.get(0).getNativeBuffer().refCnt());
+        assertEquals(0, in.getNativeBuffer().refCnt());
+    }
+
+    @Test
+    void oversizedBodies() throws IOException {
+        int limit = maxBody();
+        EncryptRequest request = decode(json(400000), EncryptRequest.class);
+        assertEquals(400000, controller.encrypt(request).getCiphertext()
+                     .length());
+        DataBufferLimitException excp =
+            assertThrows(DataBufferLimitException.class,
+                () -> decode(json(limit), EncryptRequest.class));
+        assertEquals(413, controller.tooLarge(excp).getStatusCodeValue());
+    }
+
+    /** Return a request body for a message of LEN letters. */
+    static String json(int len) {
+        char[] msg = new char[len];
+        Arrays.fill(msg, 'A');
+        return "{\"rotors\":[\"B\",\"Beta\",\"III\",\"IV\",\"I\"],"
+            + "\"positions\":\"AXLE\",\"message\":\"" + new String(msg)
+            + "\"}";
+    }
+
+    /** Return the largest JSON body the application decodes, as set in
+     *  application.properties. */
+    static int maxBody() throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = EnigmaControllerTest.class
+                 .getResourceAsStream("/application.properties")) {
+            props.load(in);
+        }
+        return (int) DataSize.parse(
+            props.getProperty("spring.codec.max-in-memory-size")).toBytes();
+    }
+
+    /** Return BODY decoded as JSON into a TYPE, as the application's
+     *  codecs would decode a request body. */
+    static <T> T decode(String body, Class<T> type) throws IOException {
+        Jackson2JsonDecoder decoder = new Jackson2JsonDecoder();
+        decoder.setMaxInMemorySize(maxBody());
+        @SuppressWarnings("unchecked")
+        T result = (T) decoder.decodeToMono(buffers(body),
+            ResolvableType.forClass(type), null, null).block();
+        return result;
+    }
+
+    @Test
+    void longBatches() throws IOException {
+        String job = batchJob("FROM HIS SHOULDER HIAWATHA");
+        for (int n : new int[] {EnigmaController.MAX_BATCH + 1,
+                                2 * EnigmaController.MAX_BATCH}) {
+            List<EncryptRequest> batch = decodeList(
+                "[" + String.join(",", Collections.nCopies(n, job)) + "]");
+            assertEquals(n, batch.size());
+            IllegalArgumentException excp =
+                assertThrows(IllegalArgumentException.class,
+                    () -> controller.encryptBatch(batch));
+            assertEquals(400,
+                controller.badRequest(excp).getStatusCodeValue());
+        }
+        String big = batchJob(String.join("", Collections.nCopies(2000,
+                                                                  "A")));
+        assertThrows(DataBufferLimitException.class, () -> decodeList("["
+            + String.join(",", Collections.nCopies(
+                EnigmaController.MAX_BATCH, big)) + "]"));
+    }
+
+    /** Return the JSON of a batch job converting MESSAGE on the machine of
+     *  the standard test vector. */
+    static String batchJob(String message) {
+        return "{\"rotors\":[\"B\",\"Beta\",\"III\",\"IV\",\"I\"],"
+            + "\"positions\":\"AXLE\","
+            + "\"plugboard\":\"(HQ) (EX) (IP) (TR) (BY)\","
+            + "\"message\":\"" + message + "\"}";
+    }
+
+    @Test
+    void streamTakesText() throws NoSuchMethodException {
+        PostMapping mapping = EnigmaController.class.getMethod(
+            "encryptStream", String[].class, String.class, String.class,
+            String.class, CharPolicy.class, Flux.class)
+            .getAnnotation(PostMapping.class);
+        assertEquals(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                                   MediaType.TEXT_PLAIN_VALUE),
+                     Arrays.asList(mapping.consumes()));
+    }
+
+    /** Return BODY decoded as a JSON list of requests, as the
+     *  application's codecs would decode a request body. */
+    static List<EncryptRequest> decodeList(String body) throws IOException {
+        Jackson2JsonDecoder decoder = new Jackson2JsonDecoder();
+        decoder.setMaxInMemorySize(maxBody());
+        @SuppressWarnings("unchecked")
+        List<EncryptRequest> result = (List<EncryptRequest>) decoder
+            .decodeToMono(buffers(body), ResolvableType.forClassWithGenerics(
+                List.class, EncryptRequest.class), null, null).block();
+        return result;
+    }
+
+    /** Return a stream of buffers holding CHUNKS. */
+    static Flux<DataBuffer> buffers(String... chunks) {
+        DataBufferFactory factory = new DefaultDataBufferFactory();
+        return Flux.just(chunks).map(
+            s -> factory.wrap(s.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /** Return the contents of the buffers in BODY as one string. */
+    static String stream(Flux<DataBuffer> body) {
+        return body.map(b -> b.toString(StandardCharsets.US_ASCII))
+            .collect(StringBuilder::new, StringBuilder::append)
+            .block().toString();
+    }
+}
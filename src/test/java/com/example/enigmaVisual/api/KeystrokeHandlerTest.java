@@ -0,0 +1,114 @@
+package com.example.enigmaVisual.api;
+
+import com.example.enigmaVisual.dao.EnigmaDao;
+import com.example.enigmaVisual.model.EnigmaException;
+import com.example.enigmaVisual.service.EnigmaService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of the keystroke channel's replies, without a connection.
+ *  @author Andy Jiang
+ */
+class KeystrokeHandlerTest {
+
+    /** Sessions of the handler under test. */
+    private final EnigmaDao dao = new EnigmaDao();
+    /** Service of the handler under test. */
+    private final EnigmaService service = new EnigmaService(dao);
+    /** Handler under test. */
+    private final KeystrokeHandler handler = new KeystrokeHandler(service);
+
+    /** Return the query of the standard test vector's machine at
+     *  POSITIONS, URL-encoded. */
+    static MultiValueMap<String, String> query(String positions) {
+        MultiValueMap<String, String> query = new LinkedMultiValueMap<>();
+        query.add("rotors", "B,Beta,III,IV,I");
+        query.add("positions", positions);
+        query.add("plugboard", "%28HQ%29%20%28EX%29%20%28IP%29%20%28TR%29"
+                  + "%20%28BY%29");
+        return query;
+    }
+
+    @Test
+    void keyPresses() {
+        KeystrokeHandler.Keyboard keyboard = handler.keyboard(query("AXLE"));
+        StringBuilder out = new StringBuilder();
+        String last = null;
+        for (String key : "FROM HIS SHOULDER HIAWATHA".split("")) {
+            for (String reply : keyboard.press(key)) {
+                out.append(reply.charAt(8));
+                last = reply;
+            }
+        }
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW", out.toString());
+        assertTrue(last.startsWith("{\"out\":\"W\",\"pos\":\"AXMB\","));
+        assertEquals(11, last.length() - last.indexOf("path") - 9);
+        assertTrue(last.endsWith("W\"}"));
+    }
+
+    @Test
+    void badKeys() {
+        KeystrokeHandler.Keyboard keyboard = handler.keyboard(query("AXLE"));
+        List<String> replies = keyboard.press("F\"R");
+        assertEquals(3, replies.size());
+        assertEquals("{\"error\":\"Character is not in alphabet: \\\"\"}",
+                     replies.get(1));
+        assertEquals('V', replies.get(2).charAt(8));
+        assertThrows(EnigmaException.class,
+            () -> handler.keyboard(query("AXL")));
+    }
+
+    @Test
+    void escapes() {
+        StringBuilder out = new StringBuilder();
+        for (int c : new int[] {'A', '"', '\\', '\n', 0x1F600}) {
+            KeystrokeHandler.escape(out, c);
+        }
+        assertEquals("A\\\"\\\\\\u000a\uD83D\uDE00", out.toString());
+    }
+
+    @Test
+    void keysUseSessions() {
+        KeystrokeHandler.Keyboard keyboard = handler.keyboard(query("AXLE"));
+        assertEquals(1, dao.sessions().size());
+        keyboard.press("FROM HIS SHOU");
+        assertEquals("UBKJZPISFXDW",
+                     service.convert(keyboard.id(), "LDER HIAWATHA"));
+        keyboard.close();
+        assertEquals(0, dao.sessions().size());
+        assertThrows(EnigmaException.class, () -> keyboard.press('A'));
+    }
+
+    @Test
+    void keysAreLogged(@TempDir Path dir) {
+        String id;
+        EnigmaDao logged = new EnigmaDao(dir.toString());
+        try {
+            KeystrokeHandler.Keyboard keyboard = new KeystrokeHandler(
+                new EnigmaService(logged)).keyboard(query("AXLE"));
+            keyboard.press("FROM HIS SHOU");
+            id = keyboard.id();
+        } finally {
+            logged.close();
+        }
+        logged = new EnigmaDao(dir.toString());
+        try {
+            assertEquals("UBKJZPISFXDW", new EnigmaService(logged)
+                         .convert(id, "LDER HIAWATHA"));
+            assertTrue(logged.sessions().remove(id));
+            assertFalse(logged.sessions().remove(id));
+        } finally {
+            logged.close();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.enigmaVisual.dao;
+
+import com.example.enigmaVisual.model.EnigmaException;
+import com.example.enigmaVisual.service.EnigmaService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of keeping sessions in files across restarts.
+ *  @author Andy Jiang
+ */
+class SessionLogTest {
+
+    @Test
+    void reopenRecoversSessions(@TempDir Path dir) {
+        int a;
+        int b;
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            a = log.configure("B Beta III IV I\n\n");
+            b = log.configure("C Gamma I II III\nAAAA\n(AB)");
+            assertEquals(a, log.configure("B Beta III IV I\n\n"));
+            log.save("x", a, 17);
+            log.save("y", b, 5);
+            log.save("z", a, 9);
+            log.remove("y");
+            log.save("x", a, 18);
+        }
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            Map<String, long[]> sessions = log.sessions();
+            assertEquals(2, sessions.size());
+            assertArrayEquals(new long[] {a, 18}, sessions.get("x"));
+            assertArrayEquals(new long[] {a, 9}, sessions.get("z"));
+            assertEquals("C Gamma I II III\nAAAA\n(AB)",
+                         log.configuration(b));
+            assertEquals(b, log.configure("C Gamma I II III\nAAAA\n(AB)"));
+        }
+    }
+
+    @Test
+    void changesToOneSessionAreCoalesced(@TempDir Path dir)
+        throws IOException {
+        int a;
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            a = log.configure("B Beta III IV I\n\n");
+            long before = log.logSize();
+            for (int i = 0; i < 10000; i++) {
+                log.save("x", a, i);
+            }
+            log.flush();
+            assertTrue(log.logSize() - before < 10000);
+        }
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            assertArrayEquals(new long[] {a, 9999}, log.sessions().get("x"));
+        }
+    }
+
+    @Test
+    void compactionKeepsLiveSessions(@TempDir Path dir) throws IOException {
+        int a;
+        try (SessionLog log = new SessionLog(dir, 4096)) {
+            a = log.configure("B Beta III IV I\n\n");
+            for (int i = 0; i < 2000; i++) {
+                log.save("s" + (i % 10), a, i);
+                log.remove("t" + i);
+                if (i % 50 == 0) {
+                    log.flush();
+                }
+            }
+        }
+        assertTrue(Files.exists(dir.resolve(SessionLog.SNAPSHOT_NAME)));
+        assertTrue(Files.size(dir.resolve(SessionLog.LOG_NAME)) < 8192);
+        try (SessionLog log = new SessionLog(dir, 4096)) {
+            Map<String, long[]> sessions = log.sessions();
+            assertEquals(10, sessions.size());
+            for (int k = 0; k < 10; k++) {
+                assertArrayEquals(new long[] {a, 1990 + k},
+                                  sessions.get("s" + k));
+            }
+        }
+    }
+
+    @Test
+    void compactionForgetsUnusedConfigs(@TempDir Path dir)
+        throws IOException {
+        int kept;
+        int dropped;
+        try (SessionLog log = new SessionLog(dir, 4096)) {
+            kept = log.configure("B Beta III IV I\n\n");
+            dropped = log.configure("C Gamma I II III\n\n");
+            for (int i = 0; i < 100; i++) {
+                int config = log.configure("B Beta III IV I\n\n" + i);
+                log.save("t" + i, config, i);
+                log.remove("t" + i);
+            }
+            log.save("x", kept, 7);
+            for (int i = 0; i < 10000; i++) {
+                log.remove("u" + i);
+                if (i % 50 == 0) {
+                    log.flush();
+                }
+            }
+            log.flush();
+            assertEquals(1, log.configCount());
+            assertThrows(EnigmaException.class,
+                () -> log.configuration(dropped));
+        }
+        try (SessionLog log = new SessionLog(dir, 4096)) {
+            assertEquals(1, log.configCount());
+            assertArrayEquals(new long[] {kept, 7}, log.sessions().get("x"));
+            assertEquals("B Beta III IV I\n\n", log.configuration(kept));
+            int again = log.configure("C Gamma I II III\n\n");
+            assertNotEquals(kept, again);
+            assertEquals("C Gamma I II III\n\n", log.configuration(again));
+        }
+    }
+
+    @Test
+    void tornTailIsIgnored(@TempDir Path dir) throws IOException {
+        int a;
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            a = log.configure("B Beta III IV I\n\n");
+            log.save("x", a, 3);
+        }
+        Files.write(dir.resolve(SessionLog.LOG_NAME),
+                    new byte[] {0, 0, 0, 40, 2, 0, 0},
+                    StandardOpenOption.APPEND);
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            log.save("y", a, 4);
+        }
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            Map<String, long[]> sessions = log.sessions();
+            assertArrayEquals(new long[] {a, 3}, sessions.get("x"));
+            assertArrayEquals(new long[] {a, 4}, sessions.get("y"));
+        }
+    }
+
+    @Test
+    void sessionsSurviveRestart(@TempDir Path dir) {
+        String[] rotors = {"B", "Beta", "III", "IV", "I"};
+        String id;
+        String other;
+        EnigmaDao dao = new EnigmaDao(dir.toString());
+        try {
+            EnigmaService service = new EnigmaService(dao);
+            id = service.openSession(rotors, null,
+                                     "(HQ) (EX) (IP) (TR) (BY)", "AXLE");
+            other = service.openSession(rotors, null, null, "AAAA");
+            assertEquals("QVPQSOKOILP",
+                         service.convert(id, "FROM HIS SHOU"));
+            dao.sessions().remove(other);
+        } finally {
+            dao.close();
+        }
+        dao = new EnigmaDao(dir.toString());
+        try {
+            EnigmaService service = new EnigmaService(dao);
+            assertEquals(1, dao.sessions().size());
+            assertFalse(dao.sessions().remove(other));
+            assertEquals("UBKJZPISFXDW",
+                         service.convert(id, "LDER HIAWATHA"));
+        } finally {
+            dao.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.enigmaVisual.dao;
+
+import com.example.enigmaVisual.model.EnigmaException;
+import com.example.enigmaVisual.model.MachineSpec;
+import com.example.enigmaVisual.model.SpecCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of the session store, on a clock that only moves when told.
+ *  @author Andy Jiang
+ */
+class SessionStoreTest {
+
+    /** Machine of the standard test vector. */
+    private final MachineSpec spec;
+    /** Current time, in nanoseconds. */
+    private long now;
+
+    SessionStoreTest() {
+        EnigmaDao dao = new EnigmaDao();
+        spec = new SpecCache(dao.alphabet(), dao.allRotors(), 4, 1L << 20)
+            .get(new String[] {"B", "Beta", "III", "IV", "I"}, null,
+                 "(HQ) (EX) (IP) (TR) (BY)");
+    }
+
+    /** Return a store of at most MAX sessions lasting TTL nanoseconds. */
+    private SessionStore store(long ttl, int max) {
+        return new SessionStore(ttl, max, () -> now, null);
+    }
+
+    @Test
+    void sessionsKeepTheirSettings() {
+        SessionStore store = store(100, 10);
+        store.put("a", spec, spec.newState("AXLE"));
+        store.put("b", spec, spec.newState("AXLE"));
+        assertEquals("QVPQSOKOILP", store.apply("a",
+            (m, s) -> m.convert(s, "FROM HIS SHOU")));
+        assertEquals("UBKJZPISFXDW", store.apply("a",
+            (m, s) -> m.convert(s, "LDER HIAWATHA")));
+        assertEquals("AXMB", store.apply("a", (m, s) -> m.setting(s)));
+        assertEquals("AXLE", store.apply("b", (m, s) -> m.setting(s)));
+        assertThrows(EnigmaException.class, () -> store.apply("b",
+            (m, s) -> m.convert(s, "AB?")));
+        assertEquals("AXLE", store.apply("b", (m, s) -> m.setting(s)));
+        assertThrows(EnigmaException.class,
+            () -> store.apply("c", (m, s) -> null));
+    }
+
+    @Test
+    void idleSessionsExpire() {
+        SessionStore store = store(100, 10);
+        store.put("a", spec, spec.newState("AXLE"));
+        store.put("b", spec, spec.newState("AXLE"));
+        now = 60;
+        store.apply("a", (m, s) -> null);
+        now = 120;
+        store.apply("a", (m, s) -> null);
+        assertThrows(EnigmaException.class,
+            () -> store.apply("b", (m, s) -> null));
+        assertEquals(1, store.size());
+        assertEquals(1, store.evictions());
+        now = 300;
+        store.put("c", spec, spec.newState("AXLE"));
+        assertEquals(1, store.size());
+        assertEquals(SessionStore.weight("c"), store.bytes());
+    }
+
+    @Test
+    void leastRecentlyUsedMakeRoom() {
+        SessionStore store = store(1000, 8);
+        for (int i = 0; i < 8; i++) {
+            now = i;
+            store.put("s" + i, spec, spec.newState("AXLE"));
+        }
+        now = 8;
+        store.apply("s0", (m, s) -> null);
+        now = 9;
+        store.put("s8", spec, spec.newState("AXLE"));
+        assertEquals(7, store.size());
+        assertEquals(2, store.evictions());
+        assertEquals(7 * SessionStore.weight("s0"), store.bytes());
+        store.apply("s0", (m, s) -> null);
+        store.apply("s8", (m, s) -> null);
+        assertThrows(EnigmaException.class,
+            () -> store.apply("s1", (m, s) -> null));
+        assertThrows(EnigmaException.class,
+            () -> store.apply("s2", (m, s) -> null));
+        assertTrue(store.remove("s8"));
+        assertFalse(store.remove("s8"));
+        assertEquals(6 * SessionStore.weight("s0"), store.bytes());
+    }
+
+    @Test
+    void endedSessionsStayEnded(@TempDir Path dir) {
+        long reset = spec.pack(spec.newState("AAAA"));
+        int config;
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            SessionStore store = new SessionStore(100, 10, () -> now, log);
+            config = log.configure("B Beta III IV I\n\n");
+            store.put("a", config, spec, spec.newState("AXLE"));
+            store.put("b", config, spec, spec.newState("AXLE"));
+            store.apply("a", (m, s) -> {
+                store.remove("a");
+                return m.convert(s, "FROM");
+            });
+            store.apply("b", (m, s) -> {
+                store.put("b", config, spec, spec.newState("AAAA"));
+                return m.convert(s, "FROM");
+            });
+        }
+        try (SessionLog log = new SessionLog(dir, 1L << 20)) {
+            Map<String, long[]> sessions = log.sessions();
+            assertEquals(1, sessions.size());
+            assertArrayEquals(new long[] {config, reset}, sessions.get("b"));
+        }
+    }
+}
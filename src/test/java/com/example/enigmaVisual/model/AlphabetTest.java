@@ -0,0 +1,59 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of Alphabet lookups.
+ *  @author Andy Jiang
+ */
+class AlphabetTest {
+
+    @Test
+    void upperCase() {
+        Alphabet alpha = new Alphabet();
+        assertEquals(26, alpha.size());
+        assertEquals(7, alpha.toInt('H'));
+        assertEquals('H', alpha.toChar(7));
+        assertTrue(alpha.contains('Z'));
+        assertFalse(alpha.contains('a'));
+        assertEquals(-1, alpha.indexOf(0x10000));
+        assertThrows(EnigmaException.class, () -> alpha.toInt('a'));
+        assertThrows(EnigmaException.class, () -> alpha.toChar(26));
+        assertThrows(EnigmaException.class, () -> new Alphabet("ABCA"));
+    }
+
+    @Test
+    void sparseAndSupplementary() {
+        String chars = "A\u4e00\uac00\ud800\udf30\uffee\u3042";
+        Alphabet alpha = new Alphabet(chars);
+        assertEquals(6, alpha.size());
+        assertFalse(alpha.isBmp());
+        assertEquals(2, alpha.indexOf('\uac00'));
+        assertEquals(3, alpha.indexOf(0x10330));
+        assertEquals(0x10330, alpha.toCodePoint(3));
+        assertEquals(5, alpha.toInt('\u3042'));
+        assertEquals(-1, alpha.indexOf('B'));
+        assertEquals(-1, alpha.indexOf('\ud800'));
+        assertThrows(EnigmaException.class, () -> alpha.toChar(3));
+        assertThrows(EnigmaException.class,
+            () -> new Alphabet("\u4e00\uac00\u4e00"));
+
+        Permutation p = new Permutation("(A\ud800\udf30\u3042)", alpha);
+        assertEquals(3, p.permute(0));
+        assertEquals("(A\ud800\udf30\u3042)", p.toString());
+    }
+
+    @Test
+    void bytes() {
+        Alphabet alpha = Alphabet.bytes();
+        assertEquals(256, alpha.size());
+        for (int i = 0; i < 256; i++) {
+            assertEquals(i, alpha.toInt((char) i));
+        }
+        assertFalse(alpha.contains((char) 256));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.randomMachine;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Checks that every lane of a BatchMachine agrees with MachineSpec.
+ *  @author Andy Jiang
+ */
+class BatchMachineTest {
+
+    @Test
+    void lanesMatchSpec() {
+        Random random = new Random(14);
+        for (int t = 0; t < 20; t++) {
+            MachineSpec spec = randomMachine(random).spec();
+            int lanes = 1 + random.nextInt(100);
+            MachineState[] states = new MachineState[lanes];
+            for (int k = 0; k < lanes; k++) {
+                states[k] = spec.newState(
+                    CompiledMachineTest.letters(random, 4));
+            }
+            BatchMachine batch = new BatchMachine(spec, states);
+            int[] out = new int[lanes];
+            for (int i = 0; i < 2000; i++) {
+                int c = random.nextInt(26);
+                batch.convert(c, out);
+                for (int k = 0; k < lanes; k++) {
+                    assertEquals(spec.convert(states[k], c), out[k]);
+                }
+            }
+            for (int k = 0; k < lanes; k++) {
+                assertEquals(spec.setting(states[k]),
+                             spec.setting(batch.state(k)));
+            }
+        }
+    }
+
+    @Test
+    void countsCribMatches() {
+        MachineSpec spec = randomMachine(new Random(2)).spec();
+        String plain = "ANGRIFFUNTERNEHMEN";
+        String cipher = spec.convert(spec.newState("QEVZ"), plain);
+        int[] input = new int[plain.length()];
+        int[] expected = new int[plain.length()];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = cipher.charAt(i) - 'A';
+            expected[i] = plain.charAt(i) - 'A';
+        }
+        BatchMachine batch = new BatchMachine(spec, new MachineState[] {
+            spec.newState("QEVY"), spec.newState("QEVZ")});
+        int[] matches = new int[2];
+        batch.countMatches(input, 0, input.length, expected, matches);
+        assertEquals(plain.length(), matches[1]);
+        assertEquals(true, matches[0] < plain.length());
+    }
+}
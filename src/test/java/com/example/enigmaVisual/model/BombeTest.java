@@ -0,0 +1,53 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.rotors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of the Bombe.
+ *  @author Andy Jiang
+ */
+class BombeTest {
+
+    @Test
+    void menuShape() {
+        SpecCache specs = new SpecCache(new Alphabet(), rotors(), 4, 1 << 20);
+        Bombe.Menu menu = new Bombe(specs).menu("XBCA", "ABC", 1);
+        assertEquals(3, menu.edges());
+        assertEquals(3, menu.letters());
+        assertEquals(1, menu.loops());
+    }
+
+    @Test
+    void stopsAtKey() {
+        String[] key = {"B", "III", "IV", "I"};
+        SpecCache specs = new SpecCache(new Alphabet(), rotors(), 4, 1 << 20);
+        MachineSpec machine =
+            specs.get(key, "BAC", "(AT) (CD) (EF) (GH) (KL) (PQ) (SV)");
+        String plain = "QQDASOBERKOMMANDODERWEHRMACHTMELDETQQ";
+        String cipher = machine.convert(machine.newState("KRT"), plain);
+        Bombe bombe = new Bombe(specs);
+        Bombe.Menu menu =
+            bombe.menu(cipher, plain.substring(2, 35), 2);
+        assertTrue(menu.loops() >= 3);
+        List<String[]> orders =
+            Arrays.asList(new String[] {"B", "IV", "III", "I"}, key);
+        Bombe.Result result = bombe.run(menu, orders, "BAC", 1000);
+        assertEquals(2 * 26 * 26 * 26, result.positions());
+        assertTrue(result.stops().size() < 100);
+        char test = menu.testLetter();
+        char partner = machine.plugboard().permute(test);
+        boolean seen = false;
+        for (Bombe.Stop stop : result.stops()) {
+            seen |= Arrays.equals(key, stop.rotors())
+                && stop.setting().equals("KRT")
+                && stop.partners().indexOf(partner) >= 0;
+        }
+        assertTrue(seen, result.stops().toString());
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Checks that a CompiledMachine agrees with the Machine it came from.
+ *  @author Andy Jiang
+ */
+class CompiledMachineTest {
+
+    /** The upper-case alphabet used by every rotor below. */
+    private static final Alphabet UPPER = new Alphabet();
+
+    /** Return a fresh set of the standard rotors. */
+    static ArrayList<Rotor> rotors() {
+        ArrayList<Rotor> r = new ArrayList<>();
+        r.add(new MovingRotor("I", new Permutation(
+            "(AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)", UPPER), "Q"));
+        r.add(new MovingRotor("II", new Permutation(
+            "(FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)", UPPER), "E"));
+        r.add(new MovingRotor("III", new Permutation(
+            "(ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)", UPPER), "V"));
+        r.add(new MovingRotor("IV", new Permutation(
+            "(AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)", UPPER), "J"));
+        r.add(new MovingRotor("V", new Permutation(
+            "(AVOLDRWFIUQ)(BZKSMNHYC) (EGTJPX)", UPPER), "Z"));
+        r.add(new MovingRotor("VI", new Permutation(
+            "(AJQDVLEOZWIYTS) (CGMNHFUX) (BPRK)", UPPER), "ZM"));
+        r.add(new FixedRotor("Beta", new Permutation(
+            "(ALBEVFCYODJWUGNMQTZSKPR) (HIX)", UPPER)));
+        r.add(new FixedRotor("Gamma", new Permutation(
+            "(AFNIRLBSQWVXGUZDKMTPCOYJHE)", UPPER)));
+        r.add(new Reflector("B", new Permutation(
+            "(AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP) (RX) (SZ) (TV)",
+            UPPER)));
+        r.add(new Reflector("C", new Permutation(
+            "(AR) (BD) (CO) (EJ) (FN) (GT) (HK) (IV) (LM) (PW) (QZ) (SX) (UY)",
+            UPPER)));
+        return r;
+    }
+
+    /** Return a machine using ROTORS at SETTING, with rings RINGS (if not
+     *  null) and plugboard PLUGS. */
+    static Machine machine(String[] rotors, String setting, String rings,
+                           String plugs) {
+        Machine m = new Machine(UPPER, 5, 3, rotors());
+        m.insertRotors(rotors);
+        m.setRotors(setting);
+        if (rings != null) {
+            m.setRings(rings);
+        }
+        m.setPlugboard(new Permutation(plugs, UPPER));
+        return m;
+    }
+
+    /** Return LEN random letters drawn from RANDOM. */
+    static String letters(Random random, int len) {
+        char[] result = new char[len];
+        for (int i = 0; i < len; i++) {
+            result[i] = (char) ('A' + random.nextInt(26));
+        }
+        return new String(result);
+    }
+
+    /** Return a random machine configuration drawn from RANDOM. */
+    static Machine randomMachine(Random random) {
+        String[] moving = {"I", "II", "III", "IV", "V", "VI"};
+        for (int i = moving.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = moving[i];
+            moving[i] = moving[j];
+            moving[j] = tmp;
+        }
+        String[] names = {random.nextBoolean() ? "B" : "C",
+            random.nextBoolean() ? "Beta" : "Gamma",
+            moving[0], moving[1], moving[2]};
+        String plugs = "";
+        for (char c = 'A'; c <= 'Z' && plugs.length() < 40; c++) {
+            char d = (char) ('A' + random.nextInt(26));
+            if (c != d && plugs.indexOf(c) < 0 && plugs.indexOf(d) < 0) {
+                plugs += "(" + c + d + ") ";
+            }
+        }
+        return machine(names, letters(random, 4),
+            random.nextBoolean() ? letters(random, 4) : null, plugs);
+    }
+
+    /** Return the conversion of MSG by M one character at a time, through
+     *  Machine.convert(int). */
+    static String convertByChar(Machine m, String msg) {
+        Alphabet alpha = m.alphabet();
+        char[] result = new char[msg.length()];
+        for (int i = 0; i < msg.length(); i++) {
+            result[i] = alpha.toChar(m.convert(alpha.toInt(msg.charAt(i))));
+        }
+        return new String(result);
+    }
+
+    @Test
+    void knownMessage() {
+        Machine m = machine(new String[] {"B", "Beta", "III", "IV", "I"},
+            "AXLE", null, "(HQ) (EX) (IP) (TR) (BY)");
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+            m.compile().convert("FROM HIS SHOULDER HIAWATHA"));
+    }
+
+    @Test
+    void matchesMachine() {
+        Random random = new Random(61);
+        for (int t = 0; t < 500; t++) {
+            long seed = random.nextLong();
+            Machine m = randomMachine(new Random(seed));
+            CompiledMachine c = m.compile();
+            String msg = letters(random, 1 + random.nextInt(1000));
+            assertEquals(convertByChar(m, msg), c.convert(msg),
+                "seed " + seed);
+        }
+    }
+
+    @Test
+    void bulkPolicies() {
+        String msg = "FROM HIS-SHOULDER, HIAWATHA";
+        String plain = "FROMHISSHOULDERHIAWATHA";
+        String expected = convertByChar(randomMachine(new Random(7)), plain);
+
+        char[] dst = new char[msg.length()];
+        int n = randomMachine(new Random(7)).compile().convert(
+            msg.toCharArray(), 0, msg.length(), dst, 0, CharPolicy.SKIP);
+        assertEquals(expected, new String(dst, 0, n));
+
+        n = randomMachine(new Random(7)).compile().convert(
+            msg.toCharArray(), 0, msg.length(), dst, 0, CharPolicy.PASS);
+        assertEquals(msg.length(), n);
+        assertEquals(expected.substring(0, 4) + " " + expected.substring(4, 7)
+            + "-", new String(dst, 0, 9));
+
+        byte[] bytes = msg.getBytes(StandardCharsets.US_ASCII);
+        n = randomMachine(new Random(7)).convert(bytes, 0, bytes.length,
+            bytes, 0, CharPolicy.SKIP);
+        assertEquals(expected, new String(bytes, 0, n,
+            StandardCharsets.US_ASCII));
+
+        assertThrows(EnigmaException.class, () ->
+            randomMachine(new Random(7)).convert("FROM HIS-SHOULDER"));
+    }
+
+    @Test
+    void machineKeepsSettings() {
+        Machine m = randomMachine(new Random(11));
+        Machine reference = randomMachine(new Random(11));
+        String msg = letters(new Random(12), 3000);
+        for (int i = 0; i < msg.length(); i += 700) {
+            String part = msg.substring(i, Math.min(msg.length(), i + 700));
+            assertEquals(convertByChar(reference, part), m.convert(part));
+        }
+    }
+
+    @Test
+    void seekMatchesStepping() {
+        Random random = new Random(29);
+        for (int t = 0; t < 100; t++) {
+            long seed = random.nextLong();
+            Machine m = randomMachine(new Random(seed));
+            CompiledMachine stepped = m.compile();
+            int presses = random.nextInt(50000);
+            String expected = m.stateAt(presses);
+            for (int k = 0; k < presses; k++) {
+                stepped.convert(0);
+            }
+            assertEquals(stepped.setting(), expected, "seed " + seed);
+
+            m.seek(presses);
+            String msg = letters(random, 200);
+            assertEquals(stepped.convert(msg), m.convert(msg), "seed " + seed);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.machine;
+import static com.example.enigmaVisual.model.CompiledMachineTest.rotors;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of the crib search.
+ *  @author Andy Jiang
+ */
+class CribSearchTest {
+
+    @Test
+    void placementsAvoidSelfEncryption() {
+        assertArrayEquals(new int[] {0, 2},
+            CribSearch.placements("ABCDE", "BAD"));
+    }
+
+    @Test
+    void findsKey() {
+        String[] key = {"B", "Beta", "II", "IV", "I"};
+        String plain = "XXXWETTERVORHERSAGEXX";
+        String cipher = machine(key, "ARQZ", "AAAB", "(AZ)").convert(plain);
+        SpecCache specs =
+            new SpecCache(new Alphabet(), rotors(), 16, 1 << 20);
+        List<String[]> orders = Arrays.asList(
+            new String[] {"B", "Beta", "I", "IV", "II"}, key);
+        CribSearch.Result result = new CribSearch(specs).search(cipher,
+            "WETTERVORHERSAGE", orders, Arrays.asList("AAAB"), "(AZ)", 10);
+        assertEquals(2 * 26 * 26 * 26 * 26, result.keys());
+        assertTrue(result.keysPerSecond() > 0);
+        boolean seen = false;
+        for (CribSearch.Candidate c : result.candidates()) {
+            seen |= Arrays.equals(key, c.rotors())
+                && c.setting().equals("ARQZ") && c.offset() == 3;
+        }
+        assertTrue(seen, result.candidates().toString());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Tests of laying out text in groups.
+ *  @author Andy Jiang
+ */
+class GroupWriterTest {
+
+    @Test
+    void groupsAcrossWrites() throws IOException {
+        StringBuilder out = new StringBuilder();
+        GroupWriter w = new GroupWriter(out);
+        w.write("ABC");
+        w.write("DEFGHIJ".toCharArray(), 0, 7);
+        w.write('K');
+        w.newLine();
+        w.newLine();
+        w.write("LMNOP");
+        w.newLine();
+        String nl = System.lineSeparator();
+        assertEquals("ABCDE FGHIJ K" + nl + nl + "LMNOP" + nl,
+                     out.toString());
+    }
+
+    @Test
+    void wrapsLines() throws IOException {
+        StringWriter out = new StringWriter();
+        GroupWriter w = new GroupWriter(out, 4, 14, "\n");
+        w.write("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+        w.newLine();
+        assertEquals("ABCD EFGH IJKL\nMNOP QRST UVWX\nYZ\n", out.toString());
+        assertThrows(EnigmaException.class,
+            () -> new GroupWriter(out, 0, 0, "\n"));
+    }
+
+    @Test
+    void writesBytes() throws IOException {
+        byte[] letters = "ABCDEFGHIJKLM".getBytes(StandardCharsets.US_ASCII);
+        StringBuilder text = new StringBuilder();
+        GroupWriter w = new GroupWriter(text, 5, 0, "\n");
+        w.write(letters, 0, 3);
+        w.write(letters, 3, 10);
+        w.newLine();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        w = new GroupWriter(new PrintStream(bytes), 5, 0, "\n");
+        w.write(letters, 0, 3);
+        w.write(letters, 3, 10);
+        w.newLine();
+        w.flush();
+        assertEquals("ABCDE FGHIJ KLM\n", text.toString());
+        assertEquals(text.toString(),
+                     bytes.toString(StandardCharsets.US_ASCII.name()));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.letters;
+import static com.example.enigmaVisual.model.CompiledMachineTest.machine;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Tests of sharing one MachineSpec between many MachineStates.
+ *  @author Andy Jiang
+ */
+class MachineSpecTest {
+
+    /** Rotors used throughout. */
+    private static final String[] ROTORS = {"B", "Beta", "III", "IV", "I"};
+
+    @Test
+    void newStateMatchesSetRotors() {
+        MachineSpec spec =
+            machine(ROTORS, "AAAA", "BCDE", "(HQ) (EX)").spec();
+        Machine m = machine(ROTORS, "AXLE", "BCDE", "(HQ) (EX)");
+        MachineState state = spec.newState("AXLE");
+        assertEquals("AXLE", spec.setting(state));
+        String msg = letters(new Random(4), 2000);
+        assertEquals(m.convert(msg), spec.convert(state, msg));
+        assertEquals(m.stateAt(0), spec.setting(state));
+    }
+
+    @Test
+    void statesAreIndependent() throws InterruptedException {
+        MachineSpec spec = machine(ROTORS, "AAAA", null, "").spec();
+        String msg = letters(new Random(8), 5000);
+        String expected = spec.convert(spec.newState("QWER"), msg);
+        String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int t = 0; t < threads.length; t++) {
+            int k = t;
+            threads[t] = new Thread(() ->
+                results[k] = spec.convert(spec.newState("QWER"), msg));
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (String result : results) {
+            assertEquals(expected, result);
+        }
+    }
+
+    @Test
+    void packRoundTrips() {
+        MachineSpec spec = machine(ROTORS, "AAAA", "ZZZZ", "").spec();
+        MachineState state = spec.newState("MYKA");
+        long packed = spec.pack(state);
+        assertEquals("MYKA", spec.setting(spec.unpack(packed)));
+        spec.convert(state, 0);
+        assertEquals(packed + 1, spec.pack(state));
+    }
+
+    @Test
+    void traceFollowsConvert() {
+        MachineSpec spec =
+            machine(ROTORS, "AAAA", null, "(HQ) (EX) (IP) (TR) (BY)").spec();
+        MachineState state = spec.newState("AXLE");
+        MachineState traced = spec.newState("AXLE");
+        int[] path = new int[spec.pathLength()];
+        int[] back = new int[spec.pathLength()];
+        for (char c : "FROMHISSHOULDERHIAWATHA".toCharArray()) {
+            MachineState before = traced.copy();
+            int out = spec.trace(traced, c, path);
+            assertEquals(spec.toChar(spec.convert(state, c - 'A')), out);
+            assertEquals(out, path[path.length - 1]);
+            assertEquals(spec.setting(state), spec.setting(traced));
+            assertEquals(c, spec.trace(before, out, back));
+            for (int i = 0; i < path.length - 1; i++) {
+                assertEquals(path[i], back[path.length - 2 - i]);
+            }
+        }
+        assertEquals("AXMB", spec.setting(traced));
+        assertEquals(-1, spec.trace(traced, ' ', path));
+        assertEquals("AXMB", spec.setting(traced));
+    }
+
+    /** Return a spec over the four characters of LETTERS, with a
+     *  reflector swapping the first two and the last two and a fixed
+     *  rotor cycling all four. */
+    private static MachineSpec spec(String letters) {
+        Alphabet alpha = new Alphabet(letters);
+        int[] c = letters.codePoints().toArray();
+        String cycles = new String(c, 0, 4);
+        String pairs = "(" + new String(c, 0, 2) + ")("
+            + new String(c, 2, 2) + ")";
+        return new MachineSpec(alpha, Arrays.asList(
+            Rotor.of("R", "R", pairs, alpha),
+            Rotor.of("N", "N", "(" + cycles + ")", alpha)),
+            new int[2], new Permutation("", alpha));
+    }
+
+    @Test
+    void arraysNeedNarrowAlphabets() {
+        MachineSpec greek = spec("\u03b1\u03b2\u03b3\u03b4");
+        String msg = "\u03b1\u03b2\u03b3\u03b4";
+        char[] buf = msg.toCharArray();
+        greek.convert(greek.unpack(0), buf, 0, 4, buf, 0, CharPolicy.REJECT);
+        assertEquals(greek.convert(greek.unpack(0), msg), new String(buf));
+        assertThrows(EnigmaException.class, () -> greek.convert(
+            greek.unpack(0), new byte[4], 0, 4, new byte[4], 0,
+            CharPolicy.PASS));
+        MachineSpec wide =
+            spec("\ud835\udc00\ud835\udc01\ud835\udc02\ud835\udc03");
+        MachineState state = wide.unpack(0);
+        assertEquals(4, wide.convert(state, "\ud835\udc00\ud835\udc01")
+                     .length());
+        assertThrows(EnigmaException.class, () -> wide.convert(
+            state, new char[4], 0, 4, new char[4], 0, CharPolicy.SKIP));
+        assertThrows(EnigmaException.class, () -> wide.convert(
+            state, CharBuffer.allocate(4), CharBuffer.allocate(4),
+            CharPolicy.SKIP));
+    }
+}
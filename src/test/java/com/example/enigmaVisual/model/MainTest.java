@@ -0,0 +1,137 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.letters;
+import static com.example.enigmaVisual.model.CompiledMachineTest.machine;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Tests of the command-line driver, run on files.
+ *  @author Andy Jiang
+ */
+class MainTest {
+
+    /** Configuration with the rotors used below. */
+    private static final String CONFIG = String.join("\n",
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ",
+        "5 3",
+        " I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)",
+        " III MV    (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)",
+        " IV MJ     (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)",
+        " Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)",
+        " B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)",
+        "           (RX) (SZ) (TV)",
+        "");
+
+    /** Return the output of running Main on INPUT, with OPTIONS before
+     *  the file names. */
+    private static String run(String input, String... options)
+        throws IOException {
+        Path dir = Files.createTempDirectory("main");
+        Path config = dir.resolve("config");
+        Path in = dir.resolve("in");
+        Path out = dir.resolve("out");
+        try {
+            Files.write(config, CONFIG.getBytes(StandardCharsets.US_ASCII));
+            Files.write(in, input.getBytes(StandardCharsets.US_ASCII));
+            String[] args = Arrays.copyOf(options, options.length + 3);
+            args[options.length] = config.toString();
+            args[options.length + 1] = in.toString();
+            args[options.length + 2] = out.toString();
+            new Main(args).process();
+            return new String(Files.readAllBytes(out),
+                              StandardCharsets.US_ASCII);
+        } finally {
+            Files.deleteIfExists(config);
+            Files.deleteIfExists(in);
+            Files.deleteIfExists(out);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void sections() throws IOException {
+        String nl = System.lineSeparator();
+        assertEquals("QVPQS OKOIL PUBKJ ZPISF XDW" + nl + nl
+                     + "EAITB SDGVU SHBUG BDDMG BFK" + nl,
+                     run("* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)"
+                         + "\r\nFROM HIS SHOULDER HIAWATHA\r\n\r\n"
+                         + "* B Beta III IV I AXLE\n"
+                         + "TOOK THE CAMERA OF ROSEWOOD"));
+    }
+
+    @Test
+    void longLine() throws IOException {
+        String msg = letters(new Random(5), 3 << 20);
+        String converted = machine(new String[] {"B", "Beta", "III", "IV",
+                                                 "I"}, "AXLE", null, "")
+            .convert(msg);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < converted.length(); i += 5) {
+            expected.append(i == 0 ? "" : " ")
+                .append(converted, i, Math.min(i + 5, converted.length()));
+        }
+        expected.append(System.lineSeparator());
+        assertEquals(expected.toString(),
+                     run("* B Beta III IV I AXLE\n" + msg + "\n"));
+    }
+
+    @Test
+    void parallelSections() throws IOException {
+        Random random = new Random(7);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            input.append("* B Beta III IV I ").append(letters(random, 4))
+                .append(" (HQ) (EX)\n");
+            int lines = i % 10 == 0 ? 20000 : 30;
+            for (int k = 0; k < lines; k++) {
+                input.append(letters(random, k % 40)).append('\n');
+            }
+        }
+        String serial = run(input.toString());
+        assertEquals(serial, run(input.toString(), "-j3"));
+        assertEquals(serial, run(input.toString(), "-j"));
+    }
+
+    @Test
+    void noSetting() {
+        assertThrows(EnigmaException.class, () -> run("\n\nHELLO\n"));
+        assertThrows(EnigmaException.class, () -> run(""));
+    }
+
+    @Test
+    void snapshots(@TempDir Path dir) throws IOException {
+        String config = dir.resolve("config").toString();
+        String snapshot = dir.resolve("snapshot").toString();
+        String in = dir.resolve("in").toString();
+        String out = dir.resolve("out").toString();
+        Files.write(Path.of(config),
+                    CONFIG.getBytes(StandardCharsets.US_ASCII));
+        Files.write(Path.of(in),
+                    ("* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)\n"
+                     + "FROM HIS SHOULDER HIAWATHA\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+        new Main(new String[] {"-c", config, snapshot}).process();
+        new Main(new String[] {"-s", snapshot, in, out}).process();
+        assertEquals("QVPQS OKOIL PUBKJ ZPISF XDW" + System.lineSeparator(),
+                     new String(Files.readAllBytes(Path.of(out)),
+                                StandardCharsets.US_ASCII));
+        assertThrows(EnigmaException.class,
+            () -> new Main(new String[] {"-s", config, in, out}).process());
+        Files.write(Path.of(config), CONFIG.replace(
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ", "ENMCABDFGHIJKLOPQRSTUVWXYZ")
+                    .getBytes(StandardCharsets.US_ASCII));
+        new Main(new String[] {config, in, out}).process();
+        assertEquals(27 + System.lineSeparator().length(),
+                     Files.size(Path.of(out)));
+    }
+}
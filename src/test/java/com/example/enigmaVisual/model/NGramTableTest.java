@@ -0,0 +1,43 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.example.enigmaVisual.model.PlugboardSearchTest.ENGLISH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Tests of writing and mapping n-gram tables.
+ *  @author Andy Jiang
+ */
+class NGramTableTest {
+
+    @Test
+    void mapsWhatWasWritten() throws IOException {
+        Alphabet upper = new Alphabet();
+        Path corpus = Files.createTempFile("corpus", ".txt");
+        Path file = Files.createTempFile("quadgrams", ".bin");
+        try {
+            Files.write(corpus, ENGLISH.getBytes("UTF-8"));
+            NGramTable trained = NGramTable.train(upper, 4, corpus);
+            trained.write(upper, file);
+            NGramTable mapped = NGramTable.map(upper, file);
+            assertEquals(4, mapped.order());
+            for (int i = 0; i < 26 * 26 * 26 * 26; i += 7) {
+                assertEquals(trained.logProb(i), mapped.logProb(i), 0f);
+            }
+            int[] text = {19, 7, 4, 18, 4, 0, 18, 14, 13};
+            assertEquals(trained.score(text, 0, text.length),
+                         mapped.score(text, 0, text.length), 0.0);
+            assertThrows(EnigmaException.class, () ->
+                NGramTable.map(new Alphabet("ZYXWVUTSRQPONMLKJIHGFEDCBA"),
+                               file));
+        } finally {
+            Files.delete(corpus);
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.letters;
+import static com.example.enigmaVisual.model.CompiledMachineTest.randomMachine;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Checks that chunked conversion agrees with sequential conversion.
+ *  @author Andy Jiang
+ */
+class ParallelConverterTest {
+
+    @Test
+    void matchesSequential() {
+        ParallelConverter converter =
+            new ParallelConverter(ForkJoinPool.commonPool(), 997);
+        Random random = new Random(3);
+        for (int t = 0; t < 50; t++) {
+            long seed = random.nextLong();
+            String msg = letters(random, random.nextInt(20000))
+                .replace('Q', ' ');
+            Machine sequential = randomMachine(new Random(seed));
+            Machine parallel = randomMachine(new Random(seed));
+            assertEquals(sequential.convert(msg),
+                converter.convert(parallel, msg), "seed " + seed);
+            assertEquals(sequential.convert("AFTERWARDS"),
+                parallel.convert("AFTERWARDS"), "seed " + seed);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of the array-backed Permutation.
+ *  @author Andy Jiang
+ */
+class PermutationTest {
+
+    /** The upper-case alphabet. */
+    private static final Alphabet UPPER = new Alphabet();
+
+    /** Wiring of rotor I in cycle notation. */
+    private static final String ROTOR_I =
+        "(AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)";
+
+    @Test
+    void parsesCycles() {
+        Permutation p = new Permutation(ROTOR_I, UPPER);
+        assertEquals('E', p.permute('A'));
+        assertEquals('A', p.permute('U'));
+        assertEquals('U', p.invert('A'));
+        assertEquals('S', p.permute('S'));
+        assertEquals(4, p.permute(26));
+        assertEquals("(AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ)",
+            p.toString());
+        assertArrayEquals(new int[] {10, 4, 4, 3, 2, 2, 1}, p.cycleType());
+        assertFalse(p.derangement());
+    }
+
+    @Test
+    void rejectsBadCycles() {
+        assertThrows(EnigmaException.class,
+            () -> new Permutation("(AB) (BC)", UPPER));
+        assertThrows(EnigmaException.class,
+            () -> new Permutation("(Ab)", UPPER));
+        assertThrows(EnigmaException.class,
+            () -> new Permutation("(AB", UPPER));
+        assertThrows(EnigmaException.class,
+            () -> new Permutation(new int[] {0, 0}, new Alphabet("AB")));
+    }
+
+    @Test
+    void algebra() {
+        Permutation p = new Permutation(ROTOR_I, UPPER);
+        Permutation q = new Permutation("(AB) (CDEFG)", UPPER);
+        Permutation pq = p.compose(q);
+        for (int i = 0; i < 26; i++) {
+            assertEquals(q.permute(p.permute(i)), pq.permute(i));
+            assertEquals(i, p.compose(p.inverse()).permute(i));
+        }
+        assertEquals(p.compose(p).compose(p).toString(),
+            p.power(3).toString());
+        assertEquals(p.inverse().power(2).toString(), p.power(-2).toString());
+        assertEquals("", p.power(60).toString());
+        assertTrue(new Permutation("(AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ)"
+            + " (LO) (MP) (RX) (SZ) (TV)", UPPER).derangement());
+    }
+
+    @Test
+    void conjugateIsRotorAtSetting() {
+        Rotor r = new MovingRotor("I", new Permutation(ROTOR_I, UPPER), "Q");
+        for (int posn = 0; posn < 26; posn++) {
+            r.set(posn);
+            Permutation shifted = r.permutation().conjugate(posn);
+            for (int i = 0; i < 26; i++) {
+                assertEquals(r.convertForward(i), shifted.permute(i));
+                assertEquals(r.convertBackward(i), shifted.invert(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.rotors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of n-gram scoring and plugboard recovery.
+ *  @author Andy Jiang
+ */
+class PlugboardSearchTest {
+
+    /** Some English, for training n-gram tables. */
+    static final String ENGLISH =
+        "IT WAS THE BEST OF TIMES IT WAS THE WORST OF TIMES IT WAS THE AGE "
+        + "OF WISDOM IT WAS THE AGE OF FOOLISHNESS IT WAS THE EPOCH OF "
+        + "BELIEF IT WAS THE EPOCH OF INCREDULITY IT WAS THE SEASON OF LIGHT "
+        + "IT WAS THE SEASON OF DARKNESS IT WAS THE SPRING OF HOPE IT WAS "
+        + "THE WINTER OF DESPAIR WE HAD EVERYTHING BEFORE US WE HAD NOTHING "
+        + "BEFORE US WE WERE ALL GOING DIRECT TO HEAVEN WE WERE ALL GOING "
+        + "DIRECT THE OTHER WAY IN SHORT THE PERIOD WAS SO FAR LIKE THE "
+        + "PRESENT PERIOD THAT SOME OF ITS NOISIEST AUTHORITIES INSISTED ON "
+        + "ITS BEING RECEIVED FOR GOOD OR FOR EVIL IN THE SUPERLATIVE DEGREE "
+        + "OF COMPARISON ONLY THERE WERE A KING WITH A LARGE JAW AND A QUEEN "
+        + "WITH A PLAIN FACE ON THE THRONE OF ENGLAND THERE WERE A KING WITH "
+        + "A LARGE JAW AND A QUEEN WITH A FAIR FACE ON THE THRONE OF FRANCE "
+        + "IN BOTH COUNTRIES IT WAS CLEARER THAN CRYSTAL TO THE LORDS OF THE "
+        + "STATE PRESERVES OF LOAVES AND FISHES THAT THINGS IN GENERAL WERE "
+        + "SETTLED FOR EVER IT WAS THE YEAR OF OUR LORD ONE THOUSAND SEVEN "
+        + "HUNDRED AND SEVENTY FIVE SPIRITUAL REVELATIONS WERE CONCEDED TO "
+        + "ENGLAND AT THAT FAVOURED PERIOD AS AT THIS MERE MESSAGES IN THE "
+        + "EARTHLY ORDER OF EVENTS HAD LATELY COME TO THE ENGLISH CROWN AND "
+        + "PEOPLE FROM A CONGRESS OF BRITISH SUBJECTS IN AMERICA WHICH "
+        + "STRANGE TO RELATE HAVE PROVED MORE IMPORTANT TO THE HUMAN RACE "
+        + "THAN ANY COMMUNICATIONS YET RECEIVED THROUGH ANY OF THE CHICKENS "
+        + "OF THE COCK LANE BROOD FRANCE LESS FAVOURED ON THE WHOLE AS TO "
+        + "MATTERS SPIRITUAL THAN HER SISTER OF THE SHIELD AND TRIDENT "
+        + "ROLLED WITH EXCEEDING SMOOTHNESS DOWN HILL MAKING PAPER MONEY AND "
+        + "SPENDING IT UNDER THE GUIDANCE OF HER CHRISTIAN PASTORS SHE "
+        + "ENTERTAINED HERSELF BESIDES WITH SUCH HUMANE ACHIEVEMENTS AS "
+        + "SENTENCING A YOUTH TO HAVE HIS HANDS CUT OFF HIS TONGUE TORN OUT "
+        + "WITH PINCERS AND HIS BODY BURNED ALIVE BECAUSE HE HAD NOT KNEELED "
+        + "DOWN IN THE RAIN TO DO HONOUR TO A DIRTY PROCESSION OF MONKS "
+        + "WHICH PASSED WITHIN HIS VIEW AT A DISTANCE OF SOME FIFTY OR SIXTY "
+        + "YARDS IT IS LIKELY ENOUGH THAT ROOTED IN THE WOODS OF FRANCE AND "
+        + "NORWAY THERE WERE GROWING TREES WHEN THAT SUFFERER WAS PUT TO "
+        + "DEATH ALREADY MARKED BY THE WOODMAN FATE TO COME DOWN AND BE SAWN "
+        + "INTO BOARDS TO MAKE A CERTAIN MOVABLE FRAMEWORK WITH A SACK AND A "
+        + "KNIFE IN IT TERRIBLE IN HISTORY";
+
+    @Test
+    void trainsTable() {
+        NGramTable table = NGramTable.train(new Alphabet(), 2, ENGLISH);
+        int th = 19 * 26 + 7;
+        int qz = 16 * 26 + 25;
+        assertTrue(table.logProb(th) > table.logProb(qz));
+        assertEquals(2, table.order());
+    }
+
+    @Test
+    void recoversPlugboard() {
+        String[] rotors = {"B", "Beta", "II", "IV", "I"};
+        String plugs = "(AT) (CR) (EN) (HQ) (LU) (OS)";
+        SpecCache specs =
+            new SpecCache(new Alphabet(), rotors(), 4, 1 << 20);
+        MachineSpec spec = specs.get(rotors, "ABUL", plugs);
+        String plain = ENGLISH.substring(0, 600).replace(" ", "");
+        String cipher = spec.convert(spec.newState("AKQM"), plain);
+        NGramTable table = NGramTable.train(new Alphabet(), 3, ENGLISH);
+        PlugboardSearch.Result result = new PlugboardSearch(specs).search(
+            cipher, rotors, "ABUL", "AKQM", table, 10, 8, 1.0, 42);
+        assertEquals(new Permutation(plugs, new Alphabet()).toString(),
+                     result.plugboard());
+        assertEquals(plain, result.plaintext());
+        assertTrue(result.trials() > 0);
+    }
+
+    @Test
+    void bestDoesNotDependOnPool() {
+        String[] rotors = {"B", "Beta", "II", "IV", "I"};
+        SpecCache specs =
+            new SpecCache(new Alphabet(), rotors(), 4, 1 << 20);
+        MachineSpec spec = specs.get(rotors, null, "(AT) (CR) (EN)");
+        String cipher = spec.convert(spec.newState("AKQM"),
+                                     ENGLISH.substring(0, 120));
+        PlugboardSearch.Result[] results = new PlugboardSearch.Result[2];
+        int[] threads = {1, 4};
+        for (int k = 0; k < threads.length; k++) {
+            ForkJoinPool pool = new ForkJoinPool(threads[k]);
+            try {
+                results[k] = new PlugboardSearch(pool, specs).search(
+                    cipher, rotors, null, "AKQM", null, 3, 64, 0, 7);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        assertEquals(results[0].plugboard(), results[1].plugboard());
+        assertEquals(results[0].score(), results[1].score());
+        assertEquals(results[0].trials(), results[1].trials());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tests of the rotor catalog and its snapshots.
+ *  @author Andy Jiang
+ */
+class RotorCatalogTest {
+
+    /** Rotors used throughout. */
+    private static final String[] ROTORS = {"B", "Beta", "III", "IV", "I"};
+
+    @Test
+    void snapshotMatchesCycles() {
+        assertArrayEquals(RotorCatalog.standardFromCycles().toBytes(),
+                          RotorCatalog.standard().toBytes());
+        assertEquals(RotorCatalog.STANDARD.length,
+                     RotorCatalog.standard().size());
+    }
+
+    @Test
+    void wideReflectors() {
+        Machine m = new Machine(RotorCatalog.standard(), 4, 3);
+        m.insertRotors(new String[] {"UKW-B", "I", "II", "III"});
+        m.setRotors("AAA");
+        assertEquals("BDZGO", m.convert("AAAAA"));
+    }
+
+    @Test
+    void roundTrip() {
+        RotorCatalog catalog = RotorCatalog.standard();
+        catalog.add("X", "R", "(AZ) (BY) (CX) (DW) (EV) (FU) (GT) (HS) "
+                    + "(IR) (JQ) (KP) (LO) (MN)");
+        RotorCatalog copy = RotorCatalog.fromBytes(catalog.toBytes());
+        assertEquals(catalog.size(), copy.size());
+        assertTrue(copy.get("X").reflecting());
+        assertArrayEquals(catalog.toBytes(), copy.toBytes());
+    }
+
+    @Test
+    void lookupsAreChecked() {
+        RotorCatalog catalog = RotorCatalog.standard();
+        assertTrue(catalog.contains("Gamma"));
+        assertFalse(catalog.contains("IX"));
+        assertThrows(EnigmaException.class, () -> catalog.get("IX"));
+        assertThrows(EnigmaException.class,
+                     () -> catalog.add("I", "MQ", "(AB)"));
+        assertThrows(EnigmaException.class,
+                     () -> RotorCatalog.fromBytes(new byte[] {1, 2, 3, 4}));
+    }
+
+    @Test
+    void insertRejectsBadNames() {
+        Machine m = new Machine(RotorCatalog.standard(), 5, 3);
+        assertThrows(EnigmaException.class, () -> m.insertRotors(
+            new String[] {"B", "Beta", "III", "IV", "IX"}));
+        assertThrows(EnigmaException.class, () -> m.insertRotors(
+            new String[] {"B", "Beta", "III", "III", "I"}));
+    }
+
+    @Test
+    void machineSnapshot() throws IOException {
+        Machine m = new Machine(RotorCatalog.standard(), 5, 3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        m.write(new DataOutputStream(bytes));
+        Machine copy = Machine.read(new DataInputStream(
+            new ByteArrayInputStream(bytes.toByteArray())));
+        for (Machine machine : new Machine[] {m, copy}) {
+            machine.insertRotors(ROTORS);
+            machine.setRotors("AXLE");
+            machine.setPlugboard(new Permutation(
+                "(HQ) (EX) (IP) (TR) (BY)", new Alphabet()));
+            assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+                         machine.convert("FROMHISSHOULDERHIAWATHA"));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.letters;
+import static com.example.enigmaVisual.model.CompiledMachineTest.machine;
+import static com.example.enigmaVisual.model.CompiledMachineTest.rotors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Tests of caching compiled specs by configuration.
+ *  @author Andy Jiang
+ */
+class SpecCacheTest {
+
+    /** Rotors used throughout. */
+    private static final String[] ROTORS = {"B", "Beta", "III", "IV", "I"};
+
+    @Test
+    void hitsOnSameConfiguration() {
+        SpecCache cache = new SpecCache(new Alphabet(), rotors(), 10, 1 << 20);
+        MachineSpec spec = cache.get(ROTORS, "BCDE", "(HQ) (EX)");
+        assertSame(spec, cache.get(ROTORS, "BCDE", "(XE)(QH)"));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        Machine m = machine(ROTORS, "AXLE", "BCDE", "(HQ) (EX)");
+        String msg = letters(new Random(5), 500);
+        assertEquals(m.convert(msg),
+                     spec.convert(spec.newState("AXLE"), msg));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        SpecCache cache = new SpecCache(new Alphabet(), rotors(), 2, 1 << 20);
+        MachineSpec first = cache.get(ROTORS, null, "");
+        cache.get(ROTORS, null, "(AB)");
+        cache.get(ROTORS, null, "");
+        cache.get(ROTORS, null, "(CD)");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        assertSame(first, cache.get(ROTORS, null, ""));
+        assertEquals(2, cache.hits());
+    }
+
+    @Test
+    void evictsByWeight() {
+        SpecCache probe = new SpecCache(new Alphabet(), rotors(), 10, 1);
+        long weight = probe.get(ROTORS, null, "").weight();
+        SpecCache cache =
+            new SpecCache(new Alphabet(), rotors(), 10, 3 * weight);
+        for (String plugs : new String[] {"", "(AB)", "(CD)", "(EF)"}) {
+            cache.get(ROTORS, null, plugs);
+        }
+        assertEquals(3, cache.size());
+        assertEquals(3 * weight, cache.weight());
+    }
+
+    @Test
+    void rejectsUnknownRotor() {
+        SpecCache cache = new SpecCache(new Alphabet(), rotors(), 10, 1 << 20);
+        assertThrows(EnigmaException.class, () ->
+            cache.get(new String[] {"B", "Beta", "III", "IV", "IX"}, null,
+                      ""));
+        assertThrows(EnigmaException.class, () ->
+            cache.get(new String[] {"B", "Beta", "III", "I", "I"}, null,
+                      ""));
+    }
+
+    @Test
+    void keysAreUnambiguous() {
+        SpecCache cache = new SpecCache(new Alphabet(), rotors(), 10, 1 << 20);
+        cache.get(ROTORS, null, null);
+        assertThrows(EnigmaException.class,
+            () -> cache.get(ROTORS, "null", null));
+        cache.get(new String[] {"B", "Beta", "III", "IV", "I"}, null, "");
+        assertThrows(EnigmaException.class, () -> cache.get(
+            new String[] {"B Beta", "III", "IV", "I"}, null, ""));
+        assertNotEquals(SpecCache.configuration(ROTORS, null, null),
+                        SpecCache.configuration(ROTORS, "null", null));
+        assertNotEquals(
+            SpecCache.configuration(new String[] {"B Beta", "III"}, "", ""),
+            SpecCache.configuration(new String[] {"B", "Beta III"}, "", ""));
+    }
+
+    @Test
+    void configurationsParse() {
+        SpecCache cache = new SpecCache(new Alphabet(), rotors(), 10, 1 << 20);
+        String text = SpecCache.configuration(ROTORS, null, "(HQ) (EX)");
+        assertSame(cache.get(ROTORS, null, "(HQ) (EX)"), cache.get(text));
+        assertSame(cache.get(ROTORS, "BCDE", null), cache.get(
+            SpecCache.configuration(ROTORS, "BCDE", null)));
+        for (String bad : new String[] {"", "-", "-:-", "5:1:B", "1:-",
+                                        text + "-", "5:1:B4:Beta"}) {
+            assertThrows(EnigmaException.class, () -> cache.get(bad));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.enigmaVisual.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static com.example.enigmaVisual.model.CompiledMachineTest.letters;
+import static com.example.enigmaVisual.model.CompiledMachineTest.machine;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Tests of converting through a precomputed StateTable.
+ *  @author Andy Jiang
+ */
+class StateTableTest {
+
+    /** Rotors used throughout. */
+    private static final String[] ROTORS = {"B", "Beta", "III", "IV", "I"};
+
+    @Test
+    void matchesSpec() {
+        MachineSpec spec =
+            machine(ROTORS, "AAAA", "BCDE", "(HQ) (EX) (IP)").spec();
+        StateTable table =
+            StateTable.build(spec, spec.newState("AXLE"), 1 << 20);
+        assertEquals(26 * 26 * 26, table.states());
+        char[] msg = letters(new Random(3), 20000).toCharArray();
+        char[] out = new char[msg.length];
+        MachineState state = spec.newState("AXLE");
+        table.convert(state, msg, 0, msg.length, out, 0, CharPolicy.REJECT);
+        MachineState expected = spec.newState("AXLE");
+        assertEquals(spec.convert(expected, new String(msg)),
+                     new String(out));
+        assertEquals(spec.setting(expected), spec.setting(state));
+    }
+
+    @Test
+    void reopensFromFile() throws IOException {
+        MachineSpec spec = machine(ROTORS, "AAAA", null, "(AB)").spec();
+        Path file = Files.createTempFile("states", ".tbl");
+        try {
+            StateTable.build(spec, spec.newState("QAAA"), 1 << 20, file);
+            StateTable table =
+                StateTable.open(spec, spec.newState("QAAA"), file);
+            MachineState state = spec.newState("QWER");
+            MachineState expected = spec.newState("QWER");
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(spec.convert(expected, i % 26),
+                             table.convert(state, i % 26));
+            }
+            assertThrows(EnigmaException.class, () ->
+                StateTable.open(spec, spec.newState("RAAA"), file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void respectsBudget() {
+        MachineSpec spec = machine(ROTORS, "AAAA", null, "").spec();
+        assertThrows(EnigmaException.class, () ->
+            StateTable.build(spec, spec.newState("AAAA"), 1000));
+    }
+}